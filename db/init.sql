@@ -47,3 +47,67 @@ ALTER TABLE books ADD COLUMN user_id INT DEFAULT NULL;
 ALTER TABLE books ADD CONSTRAINT fk_books_users
 FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL;
 
+
+-- indexes for the cheap predicates of the search filter
+CREATE INDEX idx_books_published_year ON books (published_year);
+CREATE INDEX idx_books_genre ON books (genre);
+CREATE INDEX idx_books_author_id ON books (author_id);
+CREATE INDEX idx_books_available ON books (id) WHERE user_id IS NULL;
+
+-- trigram indexes for library.search.backend=postgres (ILIKE '%...%' and the % similarity operator)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_books_title_trgm ON books USING gin (title gin_trgm_ops);
+CREATE INDEX idx_authors_name_trgm ON authors USING gin (name gin_trgm_ops);
+
+-- pooled id allocation: hibernate and the bulk importer reserve 50 ids per nextval
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE authors_id_seq INCREMENT BY 50;
+ALTER SEQUENCE books_id_seq INCREMENT BY 50;
+
+-- change feed: last write time per row, plus an append-only log of book and author changes
+ALTER TABLE books ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE authors ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+-- xid is the writing transaction; readers only take rows from transactions older than any still running
+CREATE TABLE catalog_changes (
+    seq BIGSERIAL PRIMARY KEY,
+    xid BIGINT NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    entity_type VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    change_type VARCHAR(16) NOT NULL,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+CREATE INDEX idx_catalog_changes_cursor ON catalog_changes (xid, seq);
+
+-- loan history, written by the circulation service; books.user_id stays the current holder
+CREATE TABLE loans (
+    id BIGSERIAL PRIMARY KEY,
+    book_id INT NOT NULL REFERENCES books(id) ON DELETE CASCADE,
+    user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    borrowed_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    due_at TIMESTAMPTZ NOT NULL,
+    returned_at TIMESTAMPTZ,
+    -- set by the overdue job once a notice for the loan has been written
+    overdue_notified_at TIMESTAMPTZ
+);
+-- per-user listing in keyset order, and the open loans a return looks up
+CREATE INDEX idx_loans_user ON loans (user_id, id);
+CREATE INDEX idx_loans_user_open ON loans (user_id, id) WHERE returned_at IS NULL;
+-- a copy has at most one open loan
+CREATE UNIQUE INDEX idx_loans_book_open ON loans (book_id) WHERE returned_at IS NULL;
+-- keyset scan of the overdue job: only open loans still waiting for a notice
+CREATE INDEX idx_loans_overdue_scan ON loans (id) WHERE returned_at IS NULL AND overdue_notified_at IS NULL;
+
+-- copies already out when the table is created get an open loan
+INSERT INTO loans (book_id, user_id, due_at)
+SELECT id, user_id, now() + interval '14 days' FROM books WHERE user_id IS NOT NULL;
+
+-- resume point of chunked batch jobs: the last key committed and how much of the run's output file it covers
+CREATE TABLE job_checkpoints (
+    job VARCHAR(50) PRIMARY KEY,
+    output_file VARCHAR(255) NOT NULL,
+    last_id BIGINT NOT NULL DEFAULT 0,
+    file_offset BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT false,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,69 @@
+-- Brings a database created from an older db/init.sql up to the current schema. init.sql only runs on an
+-- empty data volume, so existing deployments run this by hand; every statement is safe to run again:
+--   docker compose exec -T postgres psql -U halum -d sisimpur < db/upgrade.sql
+BEGIN;
+
+-- indexes for the cheap predicates of the search filter
+CREATE INDEX IF NOT EXISTS idx_books_published_year ON books (published_year);
+CREATE INDEX IF NOT EXISTS idx_books_genre ON books (genre);
+CREATE INDEX IF NOT EXISTS idx_books_author_id ON books (author_id);
+CREATE INDEX IF NOT EXISTS idx_books_available ON books (id) WHERE user_id IS NULL;
+
+-- trigram indexes for library.search.backend=postgres
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_books_title_trgm ON books USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_authors_name_trgm ON authors USING gin (name gin_trgm_ops);
+
+-- pooled id allocation; the next nextval jumps a whole block past every id handed out so far
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE authors_id_seq INCREMENT BY 50;
+ALTER SEQUENCE books_id_seq INCREMENT BY 50;
+
+-- change feed
+ALTER TABLE books ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE authors ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+CREATE TABLE IF NOT EXISTS catalog_changes (
+    seq BIGSERIAL PRIMARY KEY,
+    xid BIGINT NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    entity_type VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    change_type VARCHAR(16) NOT NULL,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_catalog_changes_cursor ON catalog_changes (xid, seq);
+
+-- loan history
+CREATE TABLE IF NOT EXISTS loans (
+    id BIGSERIAL PRIMARY KEY,
+    book_id INT NOT NULL REFERENCES books(id) ON DELETE CASCADE,
+    user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    borrowed_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    due_at TIMESTAMPTZ NOT NULL,
+    returned_at TIMESTAMPTZ
+);
+CREATE INDEX IF NOT EXISTS idx_loans_user ON loans (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_loans_user_open ON loans (user_id, id) WHERE returned_at IS NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_loans_book_open ON loans (book_id) WHERE returned_at IS NULL;
+
+-- copies already out get an open loan, unless they have one; the borrow time is unknown, so they are due
+-- one loan period from now
+INSERT INTO loans (book_id, user_id, due_at)
+SELECT b.id, b.user_id, now() + interval '14 days' FROM books b
+WHERE b.user_id IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM loans l WHERE l.book_id = b.id AND l.returned_at IS NULL);
+
+-- overdue notices
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS overdue_notified_at TIMESTAMPTZ;
+CREATE INDEX IF NOT EXISTS idx_loans_overdue_scan ON loans (id) WHERE returned_at IS NULL AND overdue_notified_at IS NULL;
+
+CREATE TABLE IF NOT EXISTS job_checkpoints (
+    job VARCHAR(50) PRIMARY KEY,
+    output_file VARCHAR(255) NOT NULL,
+    last_id BIGINT NOT NULL DEFAULT 0,
+    file_offset BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT false,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+COMMIT;
@@ -0,0 +1,197 @@
+package com.sisimpur.library.benchmark;
+
+import com.sisimpur.library.dto.AuthorNameView;
+import com.sisimpur.library.dto.BookAuthorTitleView;
+import com.sisimpur.library.dto.BookTitleView;
+import com.sisimpur.library.dto.GenreCountView;
+import com.sisimpur.library.model.Author;
+import com.sisimpur.library.model.Book;
+import com.sisimpur.library.repository.AuthorRepository;
+import com.sisimpur.library.repository.BookRepository;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Map-backed stand-ins for the Spring Data repositories, so the service layer can be benchmarked without a
+ * database. Only the query methods used on the search path are implemented; Specifications are evaluated
+ * through InMemorySpecifications.
+ */
+public class InMemoryRepositories {
+
+    private final Map<Long, Book> books = new LinkedHashMap<>();
+    private final Map<Long, Author> authors = new LinkedHashMap<>();
+    private final Map<Long, List<Book>> booksByAuthor = new HashMap<>();
+
+    public InMemoryRepositories(SyntheticCatalog catalog) {
+        for (Author author : catalog.getAuthors()) {
+            authors.put(author.getId(), author);
+        }
+        for (Book book : catalog.getBooks()) {
+            books.put(book.getId(), book);
+            booksByAuthor.computeIfAbsent(book.getAuthor().getId(), id -> new ArrayList<>()).add(book);
+        }
+    }
+
+    // findAll(Specification, Sort) is answered in id order, which is the only sort the services ask for
+    @SuppressWarnings("unchecked")
+    public BookRepository bookRepository() {
+        return proxy(BookRepository.class, (method, args) -> switch (method.getName()) {
+            case "findAll" -> args == null ? new ArrayList<>(books.values())
+                    : books.values().stream()
+                    .filter(InMemorySpecifications.toFilter((Specification<Book>) args[0], Book.class))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            case "findAllById", "findByIdIn" -> findAllById(books, (Iterable<?>) args[0]);
+            case "findBy" -> ((Function<Object, Object>) args[1]).apply(fluentQuery(books.values().stream()
+                    .filter(InMemorySpecifications.toFilter((Specification<Book>) args[0], Book.class)).toList()));
+            case "findById" -> Optional.ofNullable(books.get((Long) args[0]));
+            case "findByAuthor" -> booksByAuthor.getOrDefault(((Author) args[0]).getId(), List.of());
+            case "findByAuthorIdIn" -> ((Collection<?>) args[0]).stream()
+                    .flatMap(id -> booksByAuthor.getOrDefault((Long) id, List.of()).stream()).toList();
+            case "findTitlesByAuthorIdIn" -> ((Collection<?>) args[0]).stream()
+                    .flatMap(id -> booksByAuthor.getOrDefault((Long) id, List.of()).stream())
+                    .map(InMemoryRepositories::authorTitleView).toList();
+            case "findIdsByAuthorId" -> booksByAuthor.getOrDefault((Long) args[0], List.of()).stream()
+                    .map(Book::getId).toList();
+            case "findByPublishedYear" -> books.values().stream()
+                    .filter(book -> book.getPublishedYear() == (int) args[0]).toList();
+            case "findByUserIsNull" -> books.values().stream().filter(book -> book.getUser() == null).toList();
+            case "findAllTitles" -> books.values().stream().map(InMemoryRepositories::titleView).toList();
+            case "findGenreCounts" -> books.values().stream().map(Book::getGenre).filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(genre -> genre, Collectors.counting()))
+                    .entrySet().stream().map(InMemoryRepositories::genreCountView).toList();
+            case "findByGenreIn" -> books.values().stream()
+                    .filter(book -> ((Collection<?>) args[0]).contains(book.getGenre())).toList();
+            case "count" -> args == null ? (long) books.size()
+                    : books.values().stream()
+                    .filter(InMemorySpecifications.toFilter((Specification<Book>) args[0], Long.class)).count();
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    public AuthorRepository authorRepository() {
+        return proxy(AuthorRepository.class, (method, args) -> switch (method.getName()) {
+            case "findAll" -> new ArrayList<>(authors.values());
+            case "findAllById" -> findAllById(authors, (Iterable<?>) args[0]);
+            case "findById" -> Optional.ofNullable(authors.get((Long) args[0]));
+            case "existsById" -> authors.containsKey((Long) args[0]);
+            case "findAllNames" -> authors.values().stream().map(InMemoryRepositories::nameView).toList();
+            case "count" -> (long) authors.size();
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    // fluent query over rows already in id order: sortBy is a no-op, limit truncates
+    private static Object fluentQuery(List<?> rows) {
+        int[] limit = {Integer.MAX_VALUE};
+        Object[] self = new Object[1];
+        self[0] = proxy(FluentQuery.FetchableFluentQuery.class, (method, args) -> switch (method.getName()) {
+            case "sortBy" -> self[0];
+            case "limit" -> {
+                limit[0] = (int) args[0];
+                yield self[0];
+            }
+            case "all" -> new ArrayList<>(rows.subList(0, Math.min(limit[0], rows.size())));
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        return self[0];
+    }
+
+    private static <T> List<T> findAllById(Map<Long, T> entities, Iterable<?> ids) {
+        List<T> found = new ArrayList<>();
+        for (Object id : ids) {
+            T entity = entities.get((Long) id);
+            if (entity != null) {
+                found.add(entity);
+            }
+        }
+        return found;
+    }
+
+    private static BookTitleView titleView(Book book) {
+        return new BookTitleView() {
+            @Override
+            public Long getId() {
+                return book.getId();
+            }
+
+            @Override
+            public String getTitle() {
+                return book.getTitle();
+            }
+        };
+    }
+
+    private static BookAuthorTitleView authorTitleView(Book book) {
+        return new BookAuthorTitleView() {
+            @Override
+            public Long getId() {
+                return book.getId();
+            }
+
+            @Override
+            public String getTitle() {
+                return book.getTitle();
+            }
+
+            @Override
+            public Long getAuthorId() {
+                return book.getAuthor().getId();
+            }
+        };
+    }
+
+    private static AuthorNameView nameView(Author author) {
+        return new AuthorNameView() {
+            @Override
+            public Long getId() {
+                return author.getId();
+            }
+
+            @Override
+            public String getName() {
+                return author.getName();
+            }
+        };
+    }
+
+    private static GenreCountView genreCountView(Map.Entry<String, Long> entry) {
+        return new GenreCountView() {
+            @Override
+            public String getGenre() {
+                return entry.getKey();
+            }
+
+            @Override
+            public Long getBooks() {
+                return entry.getValue();
+            }
+        };
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R proxy(Class<R> repositoryType, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> repositoryType.getSimpleName() + "(in-memory)";
+                };
+            }
+            return handler.handle(method, args);
+        };
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                invocationHandler);
+    }
+}
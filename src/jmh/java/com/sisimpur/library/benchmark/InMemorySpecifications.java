@@ -0,0 +1,135 @@
+package com.sisimpur.library.benchmark;
+
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Evaluates the Specifications in BookSpecifications against plain objects, by handing them a criteria API
+ * whose paths read bean properties. Only the handful of criteria operations those specifications use are
+ * supported.
+ */
+public class InMemorySpecifications {
+
+    private InMemorySpecifications() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> java.util.function.Predicate<T> toFilter(Specification<T> specification, Class<?> resultType) {
+        Root<T> root = (Root<T>) proxy(Root.class, new PathHandler(value -> value));
+        CriteriaQuery<?> query = proxy(CriteriaQuery.class, (p, method, args) -> {
+            if (method.getName().equals("getResultType")) {
+                return resultType;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        CriteriaBuilder builder = proxy(CriteriaBuilder.class, new BuilderHandler());
+
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate == null) {
+            return value -> true;
+        }
+        java.util.function.Predicate<Object> filter = filterOf(predicate);
+        return filter::test;
+    }
+
+    private static java.util.function.Predicate<Object> filterOf(Object predicate) {
+        return ((PredicateHandler) Proxy.getInvocationHandler(predicate)).filter;
+    }
+
+    private static Function<Object, Object> accessorOf(Object expression) {
+        return ((PathHandler) Proxy.getInvocationHandler(expression)).accessor;
+    }
+
+    private static Predicate predicate(java.util.function.Predicate<Object> filter) {
+        return proxy(Predicate.class, new PredicateHandler(filter));
+    }
+
+    private record PredicateHandler(java.util.function.Predicate<Object> filter) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private record PathHandler(Function<Object, Object> accessor) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "get" -> {
+                    String property = (String) args[0];
+                    return proxy(Path.class, new PathHandler(value -> {
+                        Object owner = accessor.apply(value);
+                        return owner == null ? null : readProperty(owner, property);
+                    }));
+                }
+                case "in" -> {
+                    Collection<?> values = args[0] instanceof Collection<?> collection
+                            ? collection : Arrays.asList((Object[]) args[0]);
+                    return predicate(value -> values.contains(accessor.apply(value)));
+                }
+                case "fetch" -> {
+                    return null;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+
+    private static class BuilderHandler implements InvocationHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "conjunction" -> predicate(value -> true);
+                case "isNull" -> {
+                    Function<Object, Object> accessor = accessorOf(args[0]);
+                    yield predicate(value -> accessor.apply(value) == null);
+                }
+                case "equal" -> {
+                    Function<Object, Object> accessor = accessorOf(args[0]);
+                    Object expected = args[1];
+                    yield predicate(value -> Objects.equals(accessor.apply(value), expected));
+                }
+                case "greaterThan" -> {
+                    Function<Object, Object> accessor = accessorOf(args[0]);
+                    Comparable<Object> bound = (Comparable<Object>) args[1];
+                    yield predicate(value -> {
+                        Object actual = accessor.apply(value);
+                        return actual != null && bound.compareTo(actual) < 0;
+                    });
+                }
+                case "and" -> {
+                    Object[] operands = args.length == 1 ? (Object[]) args[0] : args;
+                    java.util.function.Predicate<Object> combined = value -> true;
+                    for (Object operand : operands) {
+                        combined = combined.and(filterOf(operand));
+                    }
+                    yield predicate(combined);
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        }
+    }
+
+    private static Object readProperty(Object owner, String property) {
+        String getter = "get" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        try {
+            return owner.getClass().getMethod(getter).invoke(owner);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No readable property " + property + " on " + owner.getClass(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InMemorySpecifications.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,74 @@
+package com.sisimpur.library.benchmark;
+
+import com.sisimpur.library.util.StringMatchingUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StringMatchingBenchmark {
+
+    private static final int PAIRS = 4096;
+    private static final double SEARCH_TOLERANCE = 0.12;
+
+    private final String[] titleQueries = new String[PAIRS];
+    private final String[] titles = new String[PAIRS];
+    private final String[] authorQueries = new String[PAIRS];
+    private final String[] authorNames = new String[PAIRS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < PAIRS; i++) {
+            titles[i] = SyntheticCatalog.randomTitle(random);
+            titleQueries[i] = queryFrom(SyntheticCatalog.randomTitle(random), random);
+            authorNames[i] = SyntheticCatalog.randomAuthorName(random);
+            authorQueries[i] = queryFrom(SyntheticCatalog.randomAuthorName(random), random);
+        }
+    }
+
+    // users type a word or two, often lowercased and sometimes misspelled
+    private static String queryFrom(String text, Random random) {
+        String[] words = text.toLowerCase().split(" ");
+        int start = random.nextInt(words.length);
+        String query = String.join(" ", Arrays.copyOfRange(words, start,
+                Math.min(words.length, start + 1 + random.nextInt(2))));
+        if (query.length() > 3 && random.nextInt(3) == 0) {
+            int at = random.nextInt(query.length() - 1);
+            query = query.substring(0, at) + query.charAt(at + 1) + query.charAt(at) + query.substring(at + 2);
+        }
+        return query;
+    }
+
+    @Benchmark
+    public double titleCombinedScore() {
+        int i = next++ & (PAIRS - 1);
+        return StringMatchingUtil.calculateCombinedScore(titleQueries[i], titles[i]);
+    }
+
+    @Benchmark
+    public double authorCombinedScore() {
+        int i = next++ & (PAIRS - 1);
+        return StringMatchingUtil.calculateCombinedScore(authorQueries[i], authorNames[i]);
+    }
+
+    @Benchmark
+    public boolean titleIsMatch() {
+        int i = next++ & (PAIRS - 1);
+        return StringMatchingUtil.isMatch(titleQueries[i], titles[i], SEARCH_TOLERANCE);
+    }
+
+    @Benchmark
+    public boolean authorIsMatch() {
+        int i = next++ & (PAIRS - 1);
+        return StringMatchingUtil.isMatch(authorQueries[i], authorNames[i], SEARCH_TOLERANCE);
+    }
+}
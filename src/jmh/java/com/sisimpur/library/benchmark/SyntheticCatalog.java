@@ -0,0 +1,106 @@
+package com.sisimpur.library.benchmark;
+
+import com.sisimpur.library.model.Author;
+import com.sisimpur.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic catalog with title, author-name and genre distributions close to a real library:
+ * titles of one to eight words drawn from a skewed vocabulary, about twenty books per author and a few
+ * dozen genres.
+ */
+public class SyntheticCatalog {
+
+    private static final String[] TITLE_WORDS = {
+            "the", "of", "and", "a", "in", "to", "harry", "potter", "game", "thrones", "lord", "rings",
+            "history", "war", "peace", "love", "night", "day", "shadow", "light", "city", "river", "house",
+            "secret", "garden", "king", "queen", "stone", "fire", "ice", "dragon", "journey", "island",
+            "silence", "storm", "winter", "summer", "children", "time", "machine", "introduction",
+            "algorithms", "principles", "economics", "modern", "ancient", "world", "empire", "last", "first"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+            "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Rabindranath",
+            "Humayun", "Kazi", "Haruki", "Gabriel", "Chimamanda", "Fyodor", "Leo", "Jane", "George"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez",
+            "Martinez", "Tagore", "Ahmed", "Nazrul Islam", "Murakami", "Garcia Marquez", "Adichie",
+            "Dostoevsky", "Tolstoy", "Austen", "Orwell", "Rowling", "Martin", "Tolkien", "Christie"
+    };
+
+    public static final String[] GENRES = {
+            "Fantasy", "Science Fiction", "Mystery", "Thriller", "Romance", "Horror", "Historical Fiction",
+            "Literary Fiction", "Biography", "Autobiography", "History", "Poetry", "Drama", "Philosophy",
+            "Psychology", "Economics", "Computer Science", "Mathematics", "Physics", "Biology", "Travel",
+            "Cooking", "Self Help", "Children", "Young Adult", "Graphic Novel", "Religion", "Art", "Music",
+            "Sports"
+    };
+
+    private final List<Author> authors;
+    private final List<Book> books;
+
+    public SyntheticCatalog(int bookCount) {
+        Random random = new Random(42);
+
+        int authorCount = Math.max(1, bookCount / 20);
+        authors = new ArrayList<>(authorCount);
+        for (long id = 1; id <= authorCount; id++) {
+            Author author = new Author();
+            author.setId(id);
+            author.setName(randomAuthorName(random));
+            author.setBio("Synthetic author " + id);
+            authors.add(author);
+        }
+
+        books = new ArrayList<>(bookCount);
+        for (long id = 1; id <= bookCount; id++) {
+            Book book = new Book();
+            book.setId(id);
+            book.setTitle(randomTitle(random));
+            book.setGenre(random.nextInt(10) == 0 ? null : GENRES[skewed(random, GENRES.length)]);
+            book.setPublishedYear(1900 + random.nextInt(125));
+            book.setAuthor(authors.get(random.nextInt(authorCount)));
+            books.add(book);
+        }
+    }
+
+    public List<Author> getAuthors() {
+        return authors;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public static String randomTitle(Random random) {
+        int words = 1 + random.nextInt(8);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            String word = TITLE_WORDS[skewed(random, TITLE_WORDS.length)];
+            title.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        if (random.nextInt(5) == 0) {
+            title.append(": Volume ").append(1 + random.nextInt(12));
+        }
+        return title.toString();
+    }
+
+    public static String randomAuthorName(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    // favours the front of the vocabulary, like word frequencies in real titles
+    private static int skewed(Random random, int size) {
+        double u = random.nextDouble();
+        return (int) (size * u * u);
+    }
+}
@@ -0,0 +1,28 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.benchmark.InMemoryRepositories;
+import com.sisimpur.library.benchmark.SyntheticCatalog;
+import com.sisimpur.library.config.PaginationProperties;
+import com.sisimpur.library.index.AuthorIdSet;
+import com.sisimpur.library.index.AuthorNameTable;
+import com.sisimpur.library.index.GenreDictionary;
+import com.sisimpur.library.index.TitleTrigramIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// wires services the way Spring would, but on top of the in-memory repositories
+class BenchmarkServices {
+
+    static BookService bookService(int catalogSize) {
+        InMemoryRepositories repositories = new InMemoryRepositories(new SyntheticCatalog(catalogSize));
+        TitleTrigramIndex titleIndex = new TitleTrigramIndex();
+        AuthorNameTable authorNameTable = new AuthorNameTable();
+        GenreDictionary genreDictionary = new GenreDictionary();
+        BookService bookService = new BookService(repositories.bookRepository(), repositories.authorRepository(),
+                titleIndex, authorNameTable, new AuthorIdSet(), genreDictionary,
+                new KeysetPager(new PaginationProperties(50, 500)), new SearchMetrics(new SimpleMeterRegistry()),
+                new JvmSearchBackend(titleIndex, authorNameTable, genreDictionary),
+                null, null); // change log and availability counters: only write paths use them, the benchmarks never do
+        bookService.buildSearchIndexes();
+        return bookService;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.dto.ScoredBook;
+import com.sisimpur.library.model.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookService search methods against in-memory repositories, so only the JVM-side search cost is measured.
+ * Query parameters live in their own states, so each benchmark is only expanded over its own queries.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookSearchBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"10000", "100000", "1000000"})
+        public int catalogSize;
+
+        BookService bookService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bookService = BenchmarkServices.bookService(catalogSize);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TitleQuery {
+        @Param({"harry potter", "dragn", "the"})
+        public String query;
+    }
+
+    @State(Scope.Benchmark)
+    public static class AuthorQuery {
+        @Param({"tolkien", "murakmi"})
+        public String query;
+    }
+
+    @State(Scope.Benchmark)
+    public static class GenreQuery {
+        @Param({"fantasy", "sci fi"})
+        public String query;
+    }
+
+    @Benchmark
+    public List<Book> getBooksByTitle(Catalog catalog, TitleQuery title) {
+        return catalog.bookService.getBooksByTitle(title.query);
+    }
+
+    @Benchmark
+    public List<Book> getBooksByAuthor(Catalog catalog, AuthorQuery author) {
+        return catalog.bookService.getBooksByAuthor(author.query);
+    }
+
+    @Benchmark
+    public List<Book> getBooksByGenre(Catalog catalog, GenreQuery genre) {
+        return catalog.bookService.getBooksByGenre(genre.query);
+    }
+
+    // top 20 by relevance, the way ranked search is meant to be called
+    @Benchmark
+    public List<ScoredBook> rankBooksByTitle(Catalog catalog, TitleQuery title) {
+        return catalog.bookService.rankBooks(null, title.query, null, 20);
+    }
+
+    @Benchmark
+    public List<ScoredBook> rankBooksByAuthor(Catalog catalog, AuthorQuery author) {
+        return catalog.bookService.rankBooks(author.query, null, null, 20);
+    }
+}
@@ -0,0 +1,69 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.LibraryApplication;
+import com.sisimpur.library.dto.ImportReport;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end import throughput against the database from docker-compose; the score is rows per second and
+ * the target is tens of thousands. Imported authors are prefixed so the teardown can remove them again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class BulkImportBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final String AUTHOR_PREFIX = "jmh-import-";
+
+    private ConfigurableApplicationContext context;
+    private BulkImportService bulkImportService;
+    private byte[] ndjson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(LibraryApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run();
+        bulkImportService = context.getBean(BulkImportService.class);
+
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            // about twenty books per author, like a typical publisher feed
+            rows.append("{\"author_name\":\"").append(AUTHOR_PREFIX).append(i / 20)
+                    .append("\",\"title\":\"Imported title ").append(i)
+                    .append("\",\"genre\":\"Genre ").append(i % 40)
+                    .append("\",\"published_year\":").append(1900 + i % 120)
+                    .append("}\n");
+        }
+        ndjson = rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeImportedRows() {
+        // books go with their authors through the cascade
+        context.getBean(JdbcTemplate.class).update("delete from authors where name like ?", AUTHOR_PREFIX + "%");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportReport importNdjson() {
+        return bulkImportService.importBooks(new ByteArrayInputStream(ndjson), BulkImportService.Format.NDJSON);
+    }
+}
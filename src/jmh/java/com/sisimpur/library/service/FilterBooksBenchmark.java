@@ -0,0 +1,49 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.model.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FilterBooksBenchmark {
+
+    // first page of results, the way the search endpoint is called
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private BookService bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bookService = BenchmarkServices.bookService(catalogSize);
+    }
+
+    @Benchmark
+    public CursorPage<Book> titleAndYear() {
+        return bookService.filterBooks(null, "harry", null, 1998, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Book> yearAvailableAndTitle() {
+        return bookService.filterBooks(null, "harry", null, 1998, true, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Book> authorTitleAndGenre() {
+        return bookService.filterBooks("rowling", "stone", "fantasy", null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Book> allCriteria() {
+        return bookService.filterBooks("martin", "game of thrones", "fantasy", 1996, true, null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.LibraryApplication;
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.model.Book;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same searches through the jvm and postgres search backends, end to end against the docker-compose
+ * database. A synthetic catalog is imported for the trial and removed afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBackendBenchmark {
+
+    private static final String AUTHOR_PREFIX = "jmh-search-";
+    private static final String[] WORDS = {"shadow", "dragon", "harry", "potter", "stone", "winter", "thrones",
+            "river", "empire", "garden", "silent", "glass", "kingdom", "night", "secret", "storm"};
+
+    @Param({"jvm", "postgres"})
+    public String backend;
+
+    @Param({"100000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(LibraryApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--library.search.backend=" + backend);
+
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < catalogSize; i++) {
+            rows.append("{\"author_name\":\"").append(AUTHOR_PREFIX).append(WORDS[i % WORDS.length]).append(' ').append(i / 20)
+                    .append("\",\"title\":\"").append(WORDS[i % WORDS.length]).append(' ')
+                    .append(WORDS[(i / 7) % WORDS.length]).append(' ').append(WORDS[(i / 3) % WORDS.length])
+                    .append("\",\"genre\":\"Genre ").append(i % 40)
+                    .append("\",\"published_year\":").append(1900 + i % 120)
+                    .append("}\n");
+        }
+        context.getBean(BulkImportService.class).importBooks(
+                new ByteArrayInputStream(rows.toString().getBytes(StandardCharsets.UTF_8)), BulkImportService.Format.NDJSON);
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.getBean(JdbcTemplate.class).update("delete from authors where name like ?", AUTHOR_PREFIX + "%");
+        context.close();
+    }
+
+    @Benchmark
+    public List<Book> title() {
+        return bookService.getBooksByTitle("harry potter");
+    }
+
+    @Benchmark
+    public List<Book> misspelledTitle() {
+        return bookService.getBooksByTitle("dragn kingdm");
+    }
+
+    @Benchmark
+    public List<Book> author() {
+        return bookService.getBooksByAuthor("silent 42");
+    }
+
+    @Benchmark
+    public List<Book> genre() {
+        return bookService.getBooksByGenre("genre 7");
+    }
+
+    @Benchmark
+    public CursorPage<Book> filterTitleAndYear() {
+        return bookService.filterBooks(null, "winter", null, 1950, null, null, 50);
+    }
+}
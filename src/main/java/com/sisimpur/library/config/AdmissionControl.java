@@ -0,0 +1,111 @@
+package com.sisimpur.library.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limiter state behind AdmissionFilter: a token bucket per client and a cap on searches running at once.
+ *
+ * Each bucket is a single AtomicLong in the GCRA form of a token bucket: it holds the time at which the bucket
+ * is full again, a request of n tokens pushes that time n intervals further, and the request is refused when
+ * the push would go more than a full bucket past now. Admission is one CAS, with no lock and no refill thread.
+ * The limits live in one immutable AdmissionProperties, swapped as a whole when they change at runtime.
+ */
+@Component
+public class AdmissionControl {
+
+    // past this many tracked clients, new ones are hashed onto a fixed set of shared buckets instead of growing
+    // the map further, so a flood of new clients cannot leave every newcomer in a single bucket
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+    private static final int OVERFLOW_BUCKETS = 1024;
+
+    private volatile AdmissionProperties limits;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger searchesInFlight = new AtomicInteger();
+
+    public AdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.limits = properties;
+        Gauge.builder("library.admission.searches.in.flight", searchesInFlight, AtomicInteger::get)
+                .description("Search requests currently admitted")
+                .register(meterRegistry);
+        Gauge.builder("library.admission.clients", buckets, Map::size)
+                .description("Clients with a token bucket that is not full")
+                .register(meterRegistry);
+    }
+
+    public AdmissionProperties limits() {
+        return limits;
+    }
+
+    public void setLimits(AdmissionProperties limits) {
+        this.limits = limits;
+    }
+
+    public int searchesInFlight() {
+        return searchesInFlight.get();
+    }
+
+    /**
+     * Takes the tokens from the client's bucket. Returns 0 when the request is admitted, otherwise the
+     * nanoseconds until the bucket holds enough tokens.
+     */
+    public long tryAcquire(String client, int tokens) {
+        AdmissionProperties current = limits;
+        long interval = (long) (1_000_000_000L / current.requestsPerSecond());
+        long capacity = current.burst() * interval;
+        long cost = Math.min(tokens, current.burst()) * interval;
+
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            // a new bucket starts full
+            String key = buckets.size() < MAX_TRACKED_CLIENTS
+                    ? client : "overflow:" + Math.floorMod(client.hashCode(), OVERFLOW_BUCKETS);
+            bucket = buckets.computeIfAbsent(key, ignored -> new AtomicLong(System.nanoTime()));
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long fullAt = bucket.get();
+            // nanoTime values are only compared through their difference
+            long next = (fullAt - now > 0 ? fullAt : now) + cost;
+            long wait = next - now - capacity;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public boolean tryEnterSearch() {
+        int max = limits.maxConcurrentSearches();
+        while (true) {
+            int running = searchesInFlight.get();
+            if (running >= max) {
+                return false;
+            }
+            if (searchesInFlight.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void exitSearch() {
+        searchesInFlight.decrementAndGet();
+    }
+
+    // a full bucket is the same as no bucket; a request racing the removal at worst gets one burst extra
+    @Scheduled(fixedDelay = 60_000)
+    void dropFullBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
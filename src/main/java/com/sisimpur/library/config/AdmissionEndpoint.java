@@ -0,0 +1,54 @@
+package com.sisimpur.library.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// the Admission MBean: reads the admission limits, and updateLimits with any subset of them replaces those in
+// place. JMX only, so the limits cannot be changed by anyone who can reach the HTTP port
+@Component
+@JmxEndpoint(id = "admission")
+@RequiredArgsConstructor
+public class AdmissionEndpoint {
+
+    private final AdmissionControl admissionControl;
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        AdmissionProperties limits = admissionControl.limits();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", limits.enabled());
+        response.put("requests_per_second", limits.requestsPerSecond());
+        response.put("burst", limits.burst());
+        response.put("search_cost", limits.searchCost());
+        response.put("max_concurrent_searches", limits.maxConcurrentSearches());
+        response.put("searches_in_flight", admissionControl.searchesInFlight());
+        return response;
+    }
+
+    @WriteOperation
+    public Map<String, Object> updateLimits(@Nullable Boolean enabled, @Nullable Double requestsPerSecond,
+                                            @Nullable Integer burst, @Nullable Integer searchCost,
+                                            @Nullable Integer maxConcurrentSearches) {
+        AdmissionProperties current = admissionControl.limits();
+        try {
+            admissionControl.setLimits(new AdmissionProperties(
+                    enabled != null ? enabled : current.enabled(),
+                    requestsPerSecond != null ? requestsPerSecond : current.requestsPerSecond(),
+                    burst != null ? burst : current.burst(),
+                    searchCost != null ? searchCost : current.searchCost(),
+                    maxConcurrentSearches != null ? maxConcurrentSearches : current.maxConcurrentSearches(),
+                    current.apiKeys()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        return limits();
+    }
+}
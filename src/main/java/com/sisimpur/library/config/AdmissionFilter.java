@@ -0,0 +1,109 @@
+package com.sisimpur.library.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Admission control in front of the API. Every request is charged to its client's token bucket, keyed by the
+ * X-API-Key header when it holds a configured key and by the remote address otherwise; the fuzzy and full-text searches cost search-cost
+ * tokens, everything else one. Searches additionally need one of max-concurrent-searches slots, shared by all
+ * clients, so broad queries cannot take every core. Over either limit the request is turned away with 429
+ * and Retry-After before it reaches a controller. The health check is never limited.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private static final Set<String> SEARCH_PATHS = Set.of("/api/v1/books/search", "/api/v1/search");
+
+    private final AdmissionControl admissionControl;
+    private final Counter rateLimited;
+    private final Counter searchesShed;
+
+    public AdmissionFilter(AdmissionControl admissionControl, MeterRegistry meterRegistry) {
+        this.admissionControl = admissionControl;
+        this.rateLimited = Counter.builder("library.admission.rejected")
+                .description("Requests turned away by admission control")
+                .tag("reason", "rate")
+                .register(meterRegistry);
+        this.searchesShed = Counter.builder("library.admission.rejected")
+                .description("Requests turned away by admission control")
+                .tag("reason", "concurrency")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !admissionControl.limits().enabled() || !path.startsWith("/api/") || path.equals("/api/v1/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // HEAD runs the GET handler too
+        String method = request.getMethod();
+        boolean search = ("GET".equals(method) || "HEAD".equals(method)) && SEARCH_PATHS.contains(path(request));
+        int tokens = search ? admissionControl.limits().searchCost() : 1;
+
+        long waitNanos = admissionControl.tryAcquire(client(request), tokens);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            reject(response, (waitNanos + 999_999_999L) / 1_000_000_000L, "Rate limit exceeded, slow down.");
+            return;
+        }
+        if (!search) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!admissionControl.tryEnterSearch()) {
+            searchesShed.increment();
+            reject(response, 1, "Too many searches in progress, try again shortly.");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionControl.exitSearch();
+        }
+    }
+
+    // an unknown key would otherwise buy a fresh, full bucket per request
+    private String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        return apiKey != null && admissionControl.limits().apiKeys().contains(apiKey)
+                ? "key:" + apiKey : "addr:" + request.getRemoteAddr();
+    }
+
+    // the path as the handler mappings see it: decoded, without ;parameters, duplicate slashes or context path,
+    // so an escaped or decorated URI cannot pass for something other than the search it reaches
+    private static String path(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+    }
+
+    // written here rather than through the error page, so shedding load stays cheap
+    private static void reject(HttpServletResponse response, long retryAfterSeconds, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfterSeconds)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"" + message + "\"}");
+    }
+}
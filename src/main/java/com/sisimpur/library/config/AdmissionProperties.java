@@ -0,0 +1,29 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Set;
+
+// starting limits of AdmissionFilter; the admission actuator endpoint replaces them at runtime.
+// max-concurrent-searches of 0 means one per CPU core. Only the api-keys get a bucket of their own; any other
+// X-API-Key is ignored and the request is charged to its remote address
+@ConfigurationProperties(prefix = "library.admission")
+public record AdmissionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("50") double requestsPerSecond,
+        @DefaultValue("100") int burst,
+        @DefaultValue("10") int searchCost,
+        @DefaultValue("0") int maxConcurrentSearches,
+        @DefaultValue Set<String> apiKeys) {
+
+    public AdmissionProperties {
+        if (requestsPerSecond <= 0 || burst < 1 || searchCost < 1) {
+            throw new IllegalArgumentException("requests-per-second must be positive, burst and search-cost at least 1");
+        }
+        if (maxConcurrentSearches <= 0) {
+            maxConcurrentSearches = Runtime.getRuntime().availableProcessors();
+        }
+        apiKeys = apiKeys == null ? Set.of() : Set.copyOf(apiKeys);
+    }
+}
@@ -0,0 +1,12 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// loan terms; due_at of a new loan is the borrow time plus the loan period
+@ConfigurationProperties(prefix = "library.circulation")
+public record CirculationProperties(
+        @DefaultValue("14d") Duration loanPeriod) {
+}
@@ -0,0 +1,115 @@
+package com.sisimpur.library.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * With virtual threads there is no request thread pool left to cap how many requests reach the database at
+ * once, so thousands of them would pile into Hikari's wait queue and time out together. Under the vthreads
+ * profile every connection checkout first takes a permit from a fair semaphore sized to the Hikari pool; the
+ * permit goes back when the connection is closed.
+ */
+@Slf4j
+@Component
+@Profile("vthreads")
+public class ConnectionPermits implements BeanPostProcessor {
+
+    private final Duration permitTimeout;
+
+    public ConnectionPermits(@Value("${library.datasource.permit-timeout:10s}") Duration permitTimeout) {
+        this.permitTimeout = permitTimeout;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource hikari) {
+            int permits = hikari.getMaximumPoolSize();
+            log.info("bounding connection checkouts of {} to {} concurrent permits", beanName, permits);
+            return new BoundedDataSource(hikari, new Semaphore(permits, true), permitTimeout);
+        }
+        return bean;
+    }
+
+    static class BoundedDataSource extends DelegatingDataSource {
+
+        private final Semaphore permits;
+        private final Duration timeout;
+
+        BoundedDataSource(DataSource target, Semaphore permits, Duration timeout) {
+            super(target);
+            this.permits = permits;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            try {
+                return releasingOnClose(super.getConnection());
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            try {
+                return releasingOnClose(super.getConnection(username, password));
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new SQLTransientConnectionException(
+                            "No database connection permit available within " + timeout.toMillis() + " ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a connection permit", e);
+            }
+        }
+
+        private Connection releasingOnClose(Connection connection) {
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// circulation group commit: requests arriving within the window (or until the batch is full) share one transaction;
+// a caller waits at most request-timeout for its result
+@ConfigurationProperties(prefix = "library.circulation.group-commit")
+public record GroupCommitProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("64") int maxBatchSize,
+        @DefaultValue("4096") int queueCapacity,
+        @DefaultValue("10s") Duration requestTimeout) {
+}
@@ -0,0 +1,9 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// rows per bulk import transaction; each batch commits or fails on its own
+@ConfigurationProperties(prefix = "library.import")
+public record ImportProperties(@DefaultValue("1000") int batchSize) {
+}
@@ -0,0 +1,13 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+// overdue notice job: loans marked per transaction, and where the notice files go
+@ConfigurationProperties(prefix = "library.circulation.overdue")
+public record OverdueProperties(
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("data/notices") Path outputDir) {
+}
@@ -0,0 +1,11 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// page sizes for the keyset-paginated listing and search endpoints
+@ConfigurationProperties(prefix = "library.pagination")
+public record PaginationProperties(
+        @DefaultValue("50") int defaultPageSize,
+        @DefaultValue("500") int maxPageSize) {
+}
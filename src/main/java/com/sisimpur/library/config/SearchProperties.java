@@ -0,0 +1,13 @@
+package com.sisimpur.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// where fuzzy title/author/genre matching runs: the in-memory indexes (jvm) or pg_trgm (postgres)
+@ConfigurationProperties(prefix = "library.search")
+public record SearchProperties(
+        @DefaultValue("jvm") Backend backend,
+        @DefaultValue("0.1") double similarityThreshold) {
+
+    public enum Backend { JVM, POSTGRES }
+}
@@ -1,13 +1,17 @@
 package com.sisimpur.library.controller;
 
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.index.CatalogVersions;
 import com.sisimpur.library.model.Author;
 import com.sisimpur.library.model.Book;
 import com.sisimpur.library.repository.AuthorRepository;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
 import com.sisimpur.library.service.AuthorService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -20,9 +24,14 @@ import java.util.Optional;
 public class AuthorController {
 
     private final AuthorService authorService;
+    private final CatalogVersions catalogVersions;
 
     @GetMapping("/{id}")
-    public ResponseEntity<Author> getAuthorById(@PathVariable Long id) {
+    public ResponseEntity<Author> getAuthorById(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersions.entityEtag(Entity.AUTHOR, id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
         Author author = authorService.getAuthorById(id);
         if (author == null) {
             return ResponseEntity.notFound().build();
@@ -31,8 +40,15 @@ public class AuthorController {
     }
 
     @GetMapping
-    public List<Author> getAllAuthors() {
-        return authorService.getAllAuthors();
+    public CursorPage<Author> getAllAuthors(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        String etag = catalogVersions.catalogEtag(Entity.AUTHOR);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return authorService.getAuthorsPage(cursor, limit);
     }
 
     @PutMapping("/{id}")
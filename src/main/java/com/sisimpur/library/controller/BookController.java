@@ -1,10 +1,20 @@
 package com.sisimpur.library.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.sisimpur.library.dto.BookFieldSet;
 import com.sisimpur.library.dto.BookRequest;
+import com.sisimpur.library.dto.BookSummary;
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.dto.ScoredBook;
+import com.sisimpur.library.index.CatalogVersions;
 import com.sisimpur.library.model.Book;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.service.BookExportService;
 import com.sisimpur.library.service.BookService;
 
 import jakarta.validation.Valid;
@@ -19,15 +29,45 @@ import java.util.Map;
 public class BookController {
     
     private final BookService bookService;
+    private final BookExportService bookExportService;
+    private final CatalogVersions catalogVersions;
 
+    // the version is read before the book, so an ETag can only be older than its body, never newer
     @GetMapping("/{id}")
-    public Book getBook(@PathVariable Long id) {
+    public Book getBook(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersions.entityEtag(Entity.BOOK, id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
         return bookService.getBook(id);
     }
 
+    // fields=id,title,author_name,... returns only those fields, read in one query without loading entities
     @GetMapping
-    public List<Book> getAllBooks() {
-        return bookService.getAllBooks();
+    public CursorPage<?> getAllBooks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+        BookFieldSet fieldSet = fields == null ? null : BookFieldSet.parse(fields);
+        String etag = catalogVersions.catalogEtag(Entity.BOOK);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        if (fieldSet == null) {
+            return bookService.getBooksPage(cursor, limit);
+        }
+        CursorPage<BookSummary> page = bookService.getBookSummariesPage(cursor, limit);
+        return new CursorPage<>(page.items().stream().map(fieldSet::select).toList(), page.nextCursor());
+    }
+
+    // full catalog as NDJSON for downstream syncs, streamed so memory use stays flat
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        StreamingResponseBody body = bookExportService::exportBooks;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.ndjson\"")
+                .body(body);
     }
 
     @PostMapping
@@ -50,20 +90,53 @@ public class BookController {
         return ResponseEntity.ok("Book deleted successfully.");
     }
 
+    // ranked mode: the best `limit` matches by relevance, each with its score
+    @GetMapping(value = "/search", params = "ranked=true")
+    public ResponseEntity<List<?>> rankBooks(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+
+        BookFieldSet fieldSet = fields == null ? null : BookFieldSet.parse(fields);
+        List<ScoredBook> rankedBooks = bookService.rankBooks(author, title, minScore, limit);
+
+        if (rankedBooks.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        if (fieldSet == null) {
+            return ResponseEntity.ok(rankedBooks);
+        }
+        return ResponseEntity.ok(rankedBooks.stream().map(scored -> {
+            Map<String, Object> row = fieldSet.select(BookSummary.from(scored.book()));
+            row.put("score", scored.score());
+            return row;
+        }).toList());
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<Book>> filterBooks(
+    public ResponseEntity<CursorPage<?>> filterBooks(
             @RequestParam(required = false) String author,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String genre,
             @RequestParam(required = false) Integer year,
-            @RequestParam(required = false) Boolean available) {
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
 
-        List<Book> filteredBooks = bookService.filterBooks(author, title, genre, year, available);
+        BookFieldSet fieldSet = fields == null ? null : BookFieldSet.parse(fields);
+        CursorPage<Book> filteredBooks = bookService.filterBooks(author, title, genre, year, available, cursor, limit);
 
-        if (filteredBooks.isEmpty()) {
+        if (filteredBooks.items().isEmpty()) {
             return ResponseEntity.noContent().build(); // 204 if no books match
         }
 
+        if (fieldSet != null) {
+            return ResponseEntity.ok(new CursorPage<>(filteredBooks.items().stream()
+                    .map(book -> fieldSet.select(BookSummary.from(book))).toList(), filteredBooks.nextCursor()));
+        }
         return ResponseEntity.ok(filteredBooks); // 200 OK
     }
 
@@ -0,0 +1,25 @@
+package com.sisimpur.library.controller;
+
+import com.sisimpur.library.dto.ChangeFeedPage;
+import com.sisimpur.library.service.ChangeFeedService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// incremental sync for clients that keep a local copy of the catalog
+@RestController
+@RequestMapping("/api/v1/changes")
+@RequiredArgsConstructor
+public class ChangeFeedController {
+
+    private final ChangeFeedService changeFeedService;
+
+    @GetMapping
+    public ChangeFeedPage getChanges(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return changeFeedService.changesSince(cursor, limit);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sisimpur.library.controller;
 
+import com.sisimpur.library.service.CirculationGroupCommitter;
 import com.sisimpur.library.service.CirculationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -8,6 +9,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
@@ -20,6 +22,7 @@ import java.util.stream.Collectors;
 public class CirculationController {
 
     private final CirculationService circulationService;
+    private final CirculationGroupCommitter groupCommitter;
 
     @PostMapping("/borrow")
     public ResponseEntity<Map<String, Object>> borrowBooks(@RequestBody Map<String, Object> request) {
@@ -30,13 +33,18 @@ public class CirculationController {
             // Convert List<Integer> to List<Long>
             List<Long> bookIds = bookIdsInt.stream().map(Integer::longValue).toList();
 
-            Map<String, Object> response = circulationService.borrowBooks(userId, bookIds);
+            Map<String, Object> response = groupCommitter.isEnabled()
+                    ? groupCommitter.borrowBooks(userId, bookIds)
+                    : circulationService.borrowBooks(userId, bookIds);
 
             if (!(boolean) response.get("success")) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
             return ResponseEntity.ok(response);
 
+        } catch (ResponseStatusException e) {
+            // e.g. a full group-commit queue, not a malformed request
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("success", false, "message", "Invalid request format"));
@@ -50,7 +58,9 @@ public class CirculationController {
                 .map(Long::valueOf)
                 .collect(Collectors.toList());
 
-        Map<String, Object> response = circulationService.returnBooks(userId, bookIds);
+        Map<String, Object> response = groupCommitter.isEnabled()
+                ? groupCommitter.returnBooks(userId, bookIds)
+                : circulationService.returnBooks(userId, bookIds);
 
         if (!(boolean) response.get("success")) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
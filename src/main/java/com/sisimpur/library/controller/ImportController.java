@@ -0,0 +1,29 @@
+package com.sisimpur.library.controller;
+
+import com.sisimpur.library.dto.ImportReport;
+import com.sisimpur.library.service.BulkImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+// bulk loads for publisher feeds; the body is read as a stream, so files of any size are fine
+@RestController
+@RequestMapping("/api/v1/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final BulkImportService bulkImportService;
+
+    @PostMapping(value = "/books", consumes = "text/csv")
+    public ImportReport importCsv(InputStream body) {
+        return bulkImportService.importBooks(body, BulkImportService.Format.CSV);
+    }
+
+    @PostMapping(value = "/books", consumes = "application/x-ndjson")
+    public ImportReport importNdjson(InputStream body) {
+        return bulkImportService.importBooks(body, BulkImportService.Format.NDJSON);
+    }
+}
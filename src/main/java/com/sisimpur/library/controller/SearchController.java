@@ -0,0 +1,39 @@
+package com.sisimpur.library.controller;
+
+import com.sisimpur.library.dto.FullTextPage;
+import com.sisimpur.library.service.FullTextSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// full-text search over titles, author names and biographies; q takes simple query syntax ("quoted phrases", -not, prefix*)
+@RestController
+@RequestMapping("/api/v1/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final FullTextSearchService fullTextSearchService;
+
+    @GetMapping
+    public FullTextPage search(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return fullTextSearchService.search(q, page, size);
+    }
+
+    // rebuilds the index from the database in the background
+    @PostMapping("/reindex")
+    public ResponseEntity<Map<String, Object>> reindex() {
+        boolean started = fullTextSearchService.startMassIndexing();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(Map.of("reindexing", true, "started", started));
+    }
+}
@@ -0,0 +1,35 @@
+package com.sisimpur.library.controller;
+
+import com.sisimpur.library.service.AvailabilityStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+// copy counts for the OPAC front page, answered from in-memory counters
+@RestController
+@RequestMapping("/api/v1/stats/availability")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final AvailabilityStatsService availabilityStatsService;
+
+    @GetMapping("/genres")
+    public List<Map<String, Object>> getGenreAvailability() {
+        return availabilityStatsService.getGenreAvailability();
+    }
+
+    @GetMapping("/genres/{genre}")
+    public Map<String, Object> getGenreAvailability(@PathVariable String genre) {
+        return availabilityStatsService.getGenreAvailability(genre);
+    }
+
+    @GetMapping("/authors/{authorId}")
+    public Map<String, Object> getAuthorAvailability(@PathVariable Long authorId) {
+        return availabilityStatsService.getAuthorAvailability(authorId);
+    }
+}
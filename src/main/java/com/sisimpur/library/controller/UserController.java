@@ -1,19 +1,21 @@
 package com.sisimpur.library.controller;
 
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.dto.LoanView;
 import com.sisimpur.library.model.User;
+import com.sisimpur.library.service.CirculationService;
 import com.sisimpur.library.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/v1/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final CirculationService circulationService;
 
     @GetMapping("{id}")
     public User getUser(@PathVariable Long id){
@@ -21,8 +23,20 @@ public class UserController {
     }
 
     @GetMapping
-    public List<User> getAllUsers(){
-        return userService.getAllUsers();
+    public CursorPage<User> getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit){
+        return userService.getUsersPage(cursor, limit);
+    }
+
+    // oldest first; open=true lists only the copies the user still holds
+    @GetMapping("/{id}/loans")
+    public CursorPage<LoanView> getUserLoans(
+            @PathVariable Long id,
+            @RequestParam(required = false, defaultValue = "false") boolean open,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return circulationService.getUserLoans(id, open, cursor, limit);
     }
 
     @PostMapping
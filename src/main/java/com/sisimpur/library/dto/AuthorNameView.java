@@ -0,0 +1,7 @@
+package com.sisimpur.library.dto;
+
+// lightweight projection used to build the in-memory author name table
+public interface AuthorNameView {
+    Long getId();
+    String getName();
+}
@@ -0,0 +1,10 @@
+package com.sisimpur.library.dto;
+
+// copies and available copies of one author in one genre; also the shape of a change to those counts,
+// with negative values for copies that went away or were borrowed
+public record AvailabilityCount(Long authorId, String genre, Long total, Long available) {
+
+    public AvailabilityCount negate() {
+        return new AvailabilityCount(authorId, genre, -total, -available);
+    }
+}
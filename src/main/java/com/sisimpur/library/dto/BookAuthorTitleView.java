@@ -0,0 +1,8 @@
+package com.sisimpur.library.dto;
+
+// projection for scoring titles of a group of authors without loading the books as entities
+public interface BookAuthorTitleView {
+    Long getId();
+    String getTitle();
+    Long getAuthorId();
+}
@@ -0,0 +1,26 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sisimpur.library.model.Book;
+
+// one NDJSON line of the catalog export
+public record BookExportRow(
+        Long id,
+        String title,
+        String genre,
+        @JsonProperty("published_year") int publishedYear,
+        @JsonProperty("author_id") Long authorId,
+        @JsonProperty("author_name") String authorName,
+        boolean available) {
+
+    public static BookExportRow from(Book book) {
+        return new BookExportRow(
+                book.getId(),
+                book.getTitle(),
+                book.getGenre(),
+                book.getPublishedYear(),
+                book.getAuthor().getId(),
+                book.getAuthor().getName(),
+                book.getUser() == null);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sisimpur.library.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sparse fieldset for book listings, e.g. ?fields=id,title,author_name,available. Names are the BookSummary
+ * JSON names; camelCase spellings such as authorName are accepted too.
+ */
+public final class BookFieldSet {
+
+    private static final List<String> FIELDS =
+            List.of("id", "title", "genre", "published_year", "author_id", "author_name", "available");
+
+    private final List<String> selected;
+
+    private BookFieldSet(List<String> selected) {
+        this.selected = selected;
+    }
+
+    public static BookFieldSet parse(String fields) {
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+            if (name.isEmpty() || selected.contains(name)) {
+                continue;
+            }
+            if (!FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field: " + field.trim() + ". Allowed fields: " + String.join(",", FIELDS));
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fields cannot be empty.");
+        }
+        return new BookFieldSet(List.copyOf(selected));
+    }
+
+    public Map<String, Object> select(BookSummary book) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : selected) {
+            row.put(field, switch (field) {
+                case "id" -> book.id();
+                case "title" -> book.title();
+                case "genre" -> book.genre();
+                case "published_year" -> book.publishedYear();
+                case "author_id" -> book.authorId();
+                case "author_name" -> book.authorName();
+                default -> book.available();
+            });
+        }
+        return row;
+    }
+}
@@ -0,0 +1,28 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sisimpur.library.model.Book;
+
+// lean read model for book listings: the author's name instead of the whole author, availability instead of
+// the borrower. BookRepository builds it straight from one join, without loading entities.
+public record BookSummary(
+        Long id,
+        String title,
+        String genre,
+        @JsonProperty("published_year") Integer publishedYear,
+        @JsonProperty("author_id") Long authorId,
+        @JsonProperty("author_name") String authorName,
+        Boolean available) {
+
+    // for search results, which are already loaded with their author
+    public static BookSummary from(Book book) {
+        return new BookSummary(
+                book.getId(),
+                book.getTitle(),
+                book.getGenre(),
+                book.getPublishedYear(),
+                book.getAuthor().getId(),
+                book.getAuthor().getName(),
+                book.getUser() == null);
+    }
+}
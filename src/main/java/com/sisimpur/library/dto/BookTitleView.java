@@ -0,0 +1,7 @@
+package com.sisimpur.library.dto;
+
+// lightweight projection used to build the in-memory title index without loading full entities
+public interface BookTitleView {
+    Long getId();
+    String getTitle();
+}
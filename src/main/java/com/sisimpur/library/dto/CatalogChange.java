@@ -0,0 +1,17 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sisimpur.library.model.Author;
+import com.sisimpur.library.model.Book;
+
+// one entry of the change feed: the current book or author for an upsert, the new state for an availability
+// change, and only entity and id for a delete tombstone
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CatalogChange(
+        String entity,
+        Long id,
+        String change,
+        Boolean available,
+        Book book,
+        Author author) {
+}
@@ -0,0 +1,12 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// a page of the change feed; next_cursor is always set, pass it back to continue from here
+public record ChangeFeedPage(
+        List<CatalogChange> changes,
+        @JsonProperty("next_cursor") String nextCursor,
+        @JsonProperty("has_more") boolean hasMore) {
+}
@@ -0,0 +1,15 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// one page of a keyset-paginated listing; next_cursor is null on the last page
+public record CursorPage<T>(
+        List<T> items,
+        @JsonProperty("next_cursor") String nextCursor) {
+
+    public static <T> CursorPage<T> empty() {
+        return new CursorPage<>(List.of(), null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+// one full-text search hit; highlights maps a matched field (title, author.name, author.bio) to its fragments
+public record FullTextHit(
+        Long id,
+        String title,
+        String genre,
+        @JsonProperty("published_year") int publishedYear,
+        @JsonProperty("author_id") Long authorId,
+        @JsonProperty("author_name") String authorName,
+        float score,
+        Map<String, List<String>> highlights) {
+}
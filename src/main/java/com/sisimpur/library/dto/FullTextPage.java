@@ -0,0 +1,13 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// a page of full-text hits, best first
+public record FullTextPage(
+        @JsonProperty("total_hits") long totalHits,
+        int page,
+        int size,
+        List<FullTextHit> hits) {
+}
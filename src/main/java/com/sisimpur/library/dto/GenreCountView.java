@@ -0,0 +1,7 @@
+package com.sisimpur.library.dto;
+
+// genre with the number of books using it, used to build the in-memory genre dictionary
+public interface GenreCountView {
+    String getGenre();
+    Long getBooks();
+}
@@ -0,0 +1,16 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// outcome of one import batch; a batch that fails to commit inserts nothing
+public record ImportBatchReport(
+        int batch,
+        @JsonProperty("first_line") long firstLine,
+        @JsonProperty("last_line") long lastLine,
+        int inserted,
+        boolean committed,
+        String message,
+        List<ImportRowError> errors) {
+}
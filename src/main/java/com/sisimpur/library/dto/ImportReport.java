@@ -0,0 +1,15 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record ImportReport(
+        @JsonProperty("rows_read") long rowsRead,
+        @JsonProperty("rows_inserted") long rowsInserted,
+        @JsonProperty("rows_rejected") long rowsRejected,
+        @JsonProperty("authors_created") long authorsCreated,
+        @JsonProperty("elapsed_ms") long elapsedMs,
+        @JsonProperty("rows_per_second") long rowsPerSecond,
+        List<ImportBatchReport> batches) {
+}
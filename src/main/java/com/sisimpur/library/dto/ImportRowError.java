@@ -0,0 +1,5 @@
+package com.sisimpur.library.dto;
+
+// a rejected input line; line numbers are 1-based and count the CSV header
+public record ImportRowError(long line, String message) {
+}
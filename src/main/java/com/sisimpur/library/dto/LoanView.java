@@ -0,0 +1,15 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+// a loan as listed for a user; returned_at is null while the copy is still out
+public record LoanView(
+        Long id,
+        @JsonProperty("book_id") Long bookId,
+        String title,
+        @JsonProperty("borrowed_at") Instant borrowedAt,
+        @JsonProperty("due_at") Instant dueAt,
+        @JsonProperty("returned_at") Instant returnedAt) {
+}
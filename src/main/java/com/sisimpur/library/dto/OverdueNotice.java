@@ -0,0 +1,16 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+// one line of the overdue notice file handed to the mailing system
+public record OverdueNotice(
+        @JsonProperty("loan_id") Long loanId,
+        @JsonProperty("user_id") Long userId,
+        @JsonProperty("user_name") String userName,
+        @JsonProperty("user_email") String userEmail,
+        @JsonProperty("book_id") Long bookId,
+        String title,
+        @JsonProperty("due_at") Instant dueAt) {
+}
@@ -0,0 +1,8 @@
+package com.sisimpur.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.sisimpur.library.model.Book;
+
+// a ranked search hit: the book's own fields plus its relevance score
+public record ScoredBook(@JsonUnwrapped Book book, double score) {
+}
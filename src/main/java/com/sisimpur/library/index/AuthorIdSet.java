@@ -0,0 +1,82 @@
+package com.sisimpur.library.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bitmap of existing author ids, so author-existence checks on the book write path do not need a query.
+ * Ids come from a sequence and stay dense, so one bit per possible id is far smaller than a set of Longs.
+ * Reads are lock-free; writers are serialized and swap in a larger bitmap when an id outgrows it.
+ */
+@Component
+public class AuthorIdSet {
+
+    private volatile AtomicLongArray words = new AtomicLongArray(0);
+    private volatile int size;
+
+    public synchronized void rebuild(Collection<Long> authorIds) {
+        long maxId = authorIds.stream().mapToLong(Long::longValue).max().orElse(0);
+        AtomicLongArray rebuilt = new AtomicLongArray(wordIndex(maxId) + 1);
+        int count = 0;
+        for (Long id : authorIds) {
+            long mask = 1L << id;
+            int word = wordIndex(id);
+            if ((rebuilt.get(word) & mask) == 0) {
+                rebuilt.set(word, rebuilt.get(word) | mask);
+                count++;
+            }
+        }
+        words = rebuilt;
+        size = count;
+    }
+
+    public synchronized void add(Long authorId) {
+        int word = wordIndex(authorId);
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            words = grown;
+            current = grown;
+        }
+        long previous = current.getAndUpdate(word, bits -> bits | (1L << authorId));
+        if ((previous & (1L << authorId)) == 0) {
+            size++;
+        }
+    }
+
+    public synchronized void remove(Long authorId) {
+        AtomicLongArray current = words;
+        int word = wordIndex(authorId);
+        if (word < current.length()) {
+            long previous = current.getAndUpdate(word, bits -> bits & ~(1L << authorId));
+            if ((previous & (1L << authorId)) != 0) {
+                size--;
+            }
+        }
+    }
+
+    public boolean contains(long authorId) {
+        if (authorId < 0) {
+            return false;
+        }
+        AtomicLongArray current = words;
+        long word = authorId >>> 6;
+        return word < current.length() && (current.get((int) word) & (1L << authorId)) != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int wordIndex(long authorId) {
+        if (authorId < 0 || (authorId >>> 6) >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Author id out of range: " + authorId);
+        }
+        return (int) (authorId >>> 6);
+    }
+}
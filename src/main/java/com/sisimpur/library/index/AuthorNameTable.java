@@ -0,0 +1,80 @@
+package com.sisimpur.library.index;
+
+import com.sisimpur.library.util.StringMatchingUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached author id to name table, so author-name searches are scored in memory instead of loading every
+ * author row per request. Kept in sync by AuthorService.
+ */
+@Component
+public class AuthorNameTable {
+
+    private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+
+    public void rebuild(Map<Long, String> names) {
+        namesById.clear();
+        names.forEach(this::put);
+    }
+
+    public void put(Long authorId, String name) {
+        if (name == null) {
+            namesById.remove(authorId);
+        } else {
+            namesById.put(authorId, name);
+        }
+    }
+
+    public void remove(Long authorId) {
+        namesById.remove(authorId);
+    }
+
+    public int size() {
+        return namesById.size();
+    }
+
+    /**
+     * Returns the ids (ascending) of all authors whose name scores above the tolerance for the query, and how
+     * many names were scored.
+     */
+    public Scored<Long> search(String query, double tolerance) {
+        List<Long> result = new ArrayList<>();
+        int[] scanned = new int[1];
+        namesById.forEach((id, name) -> {
+            scanned[0]++;
+            if (StringMatchingUtil.isMatch(query, name, tolerance)) {
+                result.add(id);
+            }
+        });
+        Collections.sort(result);
+        return new Scored<>(result, scanned[0]);
+    }
+
+    /**
+     * One page of the authors scoring above minScore, best first and equal scores by id: up to `limit` of
+     * them, ranked after `after` (null for the first page). Every page is a fresh pass over the names, but
+     * only a page is ever held, however many authors match.
+     */
+    public Scored<TopScores.Entry> rank(String query, double minScore, TopScores.Entry after,
+                                              int limit) {
+        TopScores top = new TopScores(limit);
+        int[] scanned = new int[1];
+        namesById.forEach((id, name) -> {
+            scanned[0]++;
+            double score = StringMatchingUtil.scoreIfAbove(query, name, top.cutoff(minScore));
+            if (score == StringMatchingUtil.NO_MATCH) {
+                return;
+            }
+            if (after == null || score < after.score() || (score == after.score() && id > after.id())) {
+                top.offer(id, score);
+            }
+        });
+        return new Scored<>(top.best(), scanned[0]);
+    }
+}
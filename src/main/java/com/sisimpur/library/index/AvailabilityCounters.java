@@ -0,0 +1,153 @@
+package com.sisimpur.library.index;
+
+import com.sisimpur.library.dto.AvailabilityCount;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Copies and available copies per author and per genre, kept in LongAdders so concurrent borrows and returns
+ * never contend on one counter and a read is two sums. Writers pass their changes in while their transaction
+ * is open; the changes are applied once it commits, and dropped if it rolls back.
+ *
+ * The counts are replaced from a database aggregate now and then, to correct drift from writes that bypass
+ * the application. A replacement is only kept when no change was in flight or applied while the aggregate ran,
+ * so it can neither miss nor double-count a committed write.
+ */
+@Component
+public class AvailabilityCounters {
+
+    public record Counts(long total, long available) {
+    }
+
+    private static final class Tally {
+        final LongAdder total = new LongAdder();
+        final LongAdder available = new LongAdder();
+
+        Counts read() {
+            return new Counts(total.sum(), available.sum());
+        }
+    }
+
+    private record Tallies(Map<Long, Tally> byAuthor, Map<String, Tally> byGenre) {
+    }
+
+    private volatile Tallies tallies = new Tallies(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    // appliers share the read lock; only the swap to a reconciled set takes the write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Applies the changes when the current transaction commits, or right away outside of one.
+     */
+    public void adjust(Collection<AvailabilityCount> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<AvailabilityCount> pending = List.copyOf(changes);
+        inFlight.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            finish(pending);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                finish(status == STATUS_COMMITTED ? pending : List.of());
+            }
+        });
+    }
+
+    public void adjust(AvailabilityCount change) {
+        adjust(List.of(change));
+    }
+
+    /**
+     * Replaces every count with the aggregate the supplier reads. Returns false, keeping the current counts,
+     * when a change was in flight or applied meanwhile; the caller just tries again later.
+     */
+    public boolean reconcile(Supplier<List<AvailabilityCount>> aggregate) {
+        long completedBefore = completed.get();
+        if (inFlight.get() != 0) {
+            return false;
+        }
+        Tallies rebuilt = new Tallies(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        apply(rebuilt, aggregate.get());
+
+        swapLock.writeLock().lock();
+        try {
+            if (inFlight.get() != 0 || completed.get() != completedBefore) {
+                return false;
+            }
+            tallies = rebuilt;
+            return true;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public Counts forAuthor(Long authorId) {
+        Tally tally = tallies.byAuthor().get(authorId);
+        return tally == null ? new Counts(0, 0) : tally.read();
+    }
+
+    public Counts forGenre(String genre) {
+        Tally tally = tallies.byGenre().get(genre);
+        return tally == null ? new Counts(0, 0) : tally.read();
+    }
+
+    // genres that still have copies, by name
+    public SortedMap<String, Counts> allGenres() {
+        SortedMap<String, Counts> result = new TreeMap<>();
+        tallies.byGenre().forEach((genre, tally) -> {
+            Counts counts = tally.read();
+            if (counts.total() > 0) {
+                result.put(genre, counts);
+            }
+        });
+        return result;
+    }
+
+    private void finish(List<AvailabilityCount> changes) {
+        try {
+            if (!changes.isEmpty()) {
+                swapLock.readLock().lock();
+                try {
+                    apply(tallies, changes);
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+            }
+        } finally {
+            // completed moves before in-flight drops, so a reconcile always notices one of the two
+            completed.incrementAndGet();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void apply(Tallies target, List<AvailabilityCount> changes) {
+        for (AvailabilityCount change : changes) {
+            if (change.authorId() != null) {
+                add(target.byAuthor().computeIfAbsent(change.authorId(), key -> new Tally()), change);
+            }
+            // books without a genre only count towards their author
+            if (change.genre() != null) {
+                add(target.byGenre().computeIfAbsent(change.genre(), key -> new Tally()), change);
+            }
+        }
+    }
+
+    private static void add(Tally tally, AvailabilityCount change) {
+        tally.total.add(change.total());
+        tally.available.add(change.available());
+    }
+}
@@ -0,0 +1,84 @@
+package com.sisimpur.library.index;
+
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory versions behind the ETags of the book and author reads: one catalog-wide version per entity type
+ * for the listings, and a striped version per id for single-entity reads. Entities that share a stripe just
+ * invalidate each other's ETags, which costs a full response but never a stale one.
+ *
+ * Every version packs a counter and the number of writes in flight. A write bumps the counter when it starts
+ * and again when its transaction ends, and no ETag is handed out while one is in flight, so a 304 can only
+ * answer for data committed before the version was read. Reads and writes are lock-free.
+ */
+@Component
+public class CatalogVersions {
+
+    private static final int STRIPE_BITS = 14;
+    private static final int IN_FLIGHT_BITS = 20;
+    private static final long IN_FLIGHT_MASK = (1L << IN_FLIGHT_BITS) - 1;
+    private static final long BEGIN = (1L << IN_FLIGHT_BITS) + 1;
+    private static final long END = (1L << IN_FLIGHT_BITS) - 1;
+
+    // versions restart on every boot, so ETags carry the boot they were issued in
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
+    private final AtomicLong bookCatalog = new AtomicLong();
+    private final AtomicLong authorCatalog = new AtomicLong();
+    private final AtomicLongArray bookStripes = new AtomicLongArray(1 << STRIPE_BITS);
+    private final AtomicLongArray authorStripes = new AtomicLongArray(1 << STRIPE_BITS);
+
+    public void beginWrite(Entity entity, Collection<Long> ids) {
+        catalog(entity).addAndGet(BEGIN);
+        AtomicLongArray stripes = stripes(entity);
+        for (Long id : ids) {
+            stripes.addAndGet(stripe(id), BEGIN);
+        }
+    }
+
+    // must be called once for every beginWrite, with the same ids, whether the transaction committed or not
+    public void endWrite(Entity entity, Collection<Long> ids) {
+        AtomicLongArray stripes = stripes(entity);
+        for (Long id : ids) {
+            stripes.addAndGet(stripe(id), END);
+        }
+        catalog(entity).addAndGet(END);
+    }
+
+    // ETag for a listing of the entity type, or null while a write to it is in flight
+    public String catalogEtag(Entity entity) {
+        return etag(entity, "", catalog(entity).get());
+    }
+
+    // ETag for a single entity, or null while a write to its stripe is in flight
+    public String entityEtag(Entity entity, Long id) {
+        return etag(entity, "-" + id, stripes(entity).get(stripe(id)));
+    }
+
+    private String etag(Entity entity, String scope, long packed) {
+        if ((packed & IN_FLIGHT_MASK) != 0) {
+            return null;
+        }
+        return "\"" + entity.name().toLowerCase(Locale.ROOT) + scope + "-" + epoch + "-" + (packed >>> IN_FLIGHT_BITS) + "\"";
+    }
+
+    private AtomicLong catalog(Entity entity) {
+        return entity == Entity.BOOK ? bookCatalog : authorCatalog;
+    }
+
+    private AtomicLongArray stripes(Entity entity) {
+        return entity == Entity.BOOK ? bookStripes : authorStripes;
+    }
+
+    private static int stripe(Long id) {
+        // fibonacci hashing spreads the dense sequence ids over the stripes
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> (64 - STRIPE_BITS));
+    }
+}
@@ -0,0 +1,82 @@
+package com.sisimpur.library.index;
+
+import com.sisimpur.library.util.StringMatchingUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct genre strings with the number of books using each one. There are only a few dozen of them, so a
+ * genre query is resolved here once instead of scoring the genre of every book. The counts let BookService
+ * drop a genre once its last book is gone.
+ */
+@Component
+public class GenreDictionary {
+
+    private final Map<String, Long> bookCounts = new ConcurrentHashMap<>();
+
+    public void rebuild(Map<String, Long> counts) {
+        bookCounts.clear();
+        counts.forEach((genre, count) -> {
+            if (genre != null && count > 0) {
+                bookCounts.put(genre, count);
+            }
+        });
+    }
+
+    public void add(String genre) {
+        if (genre != null) {
+            bookCounts.merge(genre, 1L, Long::sum);
+        }
+    }
+
+    public void remove(String genre) {
+        if (genre != null) {
+            bookCounts.computeIfPresent(genre, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public void replace(String oldGenre, String newGenre) {
+        if (oldGenre == null ? newGenre == null : oldGenre.equals(newGenre)) {
+            return;
+        }
+        remove(oldGenre);
+        add(newGenre);
+    }
+
+    public int size() {
+        return bookCounts.size();
+    }
+
+    /**
+     * Returns every genre sharing the highest score for the query, the same ties getBooksByGenre has
+     * always returned. Blank genres never match and are not scored.
+     */
+    public Scored<String> bestMatches(String genreQuery) {
+        List<String> bestMatches = new ArrayList<>();
+        double highestScore = 0.0;
+        int scanned = 0;
+
+        for (String genre : bookCounts.keySet()) {
+            if (genre.trim().isEmpty()) {
+                continue;
+            }
+
+            scanned++;
+            double score = StringMatchingUtil.calculateCombinedScore(genreQuery, genre);
+
+            if (score > highestScore) {
+                highestScore = score;
+                bestMatches.clear();
+                bestMatches.add(genre);
+            } else if (score == highestScore) {
+                bestMatches.add(genre);
+            }
+        }
+
+        return new Scored<>(bestMatches, scanned);
+    }
+}
@@ -0,0 +1,10 @@
+package com.sisimpur.library.index;
+
+import java.util.List;
+
+/**
+ * What a scoring pass kept, together with how many candidates it actually scored to get there, so the
+ * search metrics report the work done rather than the size of the table it was pruned from.
+ */
+public record Scored<T>(List<T> matches, int scanned) {
+}
@@ -0,0 +1,344 @@
+package com.sisimpur.library.index;
+
+import com.sisimpur.library.util.StringMatchingUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index over normalized book titles.
+ *
+ * A title matches a query when StringMatchingUtil's combined score is above the tolerance, which happens
+ * either because the cleaned query is a substring of the cleaned title, or because the raw edit distance is
+ * small enough. The substring branch is answered from the trigram postings; the edit distance branch can
+ * only be bounded by title length, so only titles inside the feasible length window are scored.
+ */
+@Component
+public class TitleTrigramIndex {
+
+    // cleaned titles only contain [a-z0-9], so a trigram packs into a base-36 int
+    private static final int ALPHABET = 36;
+    private static final int TRIGRAM_SPACE = ALPHABET * ALPHABET * ALPHABET;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[0];
+    private String[] titles = new String[0];
+    private String[] cleanedTitles = new String[0];
+    private int slotCount;
+    private int liveCount;
+
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private int[][] postings = new int[TRIGRAM_SPACE][];
+    private int[] postingSizes = new int[TRIGRAM_SPACE];
+    private int[][] lengthBuckets = new int[0][];
+    private int[] lengthBucketSizes = new int[0];
+
+    public void rebuild(Map<Long, String> titlesById) {
+        lock.writeLock().lock();
+        try {
+            clear(titlesById.size());
+            for (Map.Entry<Long, String> entry : titlesById.entrySet()) {
+                addSlot(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long bookId, String title) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(bookId);
+            addSlot(bookId, title);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(bookId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids (ascending) of all books whose title scores above the tolerance for the query, and how
+     * many titles were looked at to find them.
+     */
+    public Scored<Long> search(String query, double tolerance) {
+        String cleanedQuery = StringMatchingUtil.cleanString(query);
+
+        lock.readLock().lock();
+        try {
+            boolean[] matched = new boolean[slotCount];
+            int scanned = 0;
+
+            // substring branch: a substring match alone scores 0.5, which is enough for any tolerance below it
+            if (0.5 > tolerance) {
+                scanned += matchSubstring(cleanedQuery, matched);
+            }
+
+            // edit distance branch: distance >= |m - n|, which rules out every length outside the window
+            int queryLength = query.length();
+            for (int length = 0; length < lengthBuckets.length; length++) {
+                if (lengthBucketSizes[length] == 0 || !isLengthFeasible(queryLength, length, tolerance)) {
+                    continue;
+                }
+                int[] bucket = lengthBuckets[length];
+                for (int i = 0; i < lengthBucketSizes[length]; i++) {
+                    int slot = bucket[i];
+                    if (matched[slot] || titles[slot] == null) {
+                        continue;
+                    }
+                    scanned++;
+                    if (StringMatchingUtil.isMatch(query, titles[slot], tolerance)) {
+                        matched[slot] = true;
+                    }
+                }
+            }
+
+            List<Long> result = new ArrayList<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (matched[slot]) {
+                    result.add(ids[slot]);
+                }
+            }
+            Collections.sort(result);
+            return new Scored<>(result, scanned);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to k book ids with the highest scores above minScore, best first. Titles that contain the
+     * query can score up to 1.0 and are scored first; every other title is capped at 0.5 by its length
+     * difference, so length buckets are visited from the highest cap down and the walk stops once no
+     * remaining bucket can beat the current k-th score. The scanned count is the titles actually looked at.
+     */
+    public Scored<TopScores.Entry> rank(String query, double minScore, int k) {
+        String cleanedQuery = StringMatchingUtil.cleanString(query);
+        TopScores top = new TopScores(k);
+
+        lock.readLock().lock();
+        try {
+            boolean[] substringMatch = new boolean[slotCount];
+            int scanned = matchSubstring(cleanedQuery, substringMatch);
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (substringMatch[slot]) {
+                    offer(top, slot, query, minScore);
+                }
+            }
+
+            int queryLength = query.length();
+            List<Integer> lengths = new ArrayList<>();
+            for (int length = 0; length < lengthBuckets.length; length++) {
+                if (lengthBucketSizes[length] > 0 && Math.max(queryLength, length) > 0) {
+                    lengths.add(length);
+                }
+            }
+            lengths.sort(Comparator.comparingDouble(length -> -editScoreCap(queryLength, length)));
+
+            for (int length : lengths) {
+                if (!top.canBeat(editScoreCap(queryLength, length), minScore)) {
+                    break;
+                }
+                int[] bucket = lengthBuckets[length];
+                for (int i = 0; i < lengthBucketSizes[length]; i++) {
+                    int slot = bucket[i];
+                    if (!substringMatch[slot]) {
+                        scanned += offer(top, slot, query, minScore);
+                    }
+                }
+            }
+            return new Scored<>(top.best(), scanned);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // returns 1 when the title was scored, 0 for a removed slot
+    private int offer(TopScores top, int slot, String query, double minScore) {
+        if (titles[slot] == null) {
+            return 0;
+        }
+        double score = StringMatchingUtil.scoreIfAbove(query, titles[slot], top.cutoff(minScore));
+        if (score != StringMatchingUtil.NO_MATCH) {
+            top.offer(ids[slot], score);
+        }
+        return 1;
+    }
+
+    // marks titles containing the query; returns how many titles were checked
+    private int matchSubstring(String cleanedQuery, boolean[] matched) {
+        if (cleanedQuery.length() >= 3) {
+            return matchSubstringFromPostings(cleanedQuery, matched);
+        }
+        int checked = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (cleanedTitles[slot] != null) {
+                checked++;
+                if (cleanedTitles[slot].contains(cleanedQuery)) {
+                    matched[slot] = true;
+                }
+            }
+        }
+        return checked;
+    }
+
+    // best score a title of this length can reach without containing the query
+    private static double editScoreCap(int queryLength, int titleLength) {
+        return 0.5 * (1.0 - (double) Math.abs(queryLength - titleLength) / Math.max(queryLength, titleLength));
+    }
+
+    private int matchSubstringFromPostings(String cleanedQuery, boolean[] matched) {
+        // every trigram of the query must appear in the title, so scanning the rarest posting list is enough
+        int rarest = -1;
+        for (int i = 0; i + 3 <= cleanedQuery.length(); i++) {
+            int trigram = trigramAt(cleanedQuery, i);
+            if (postingSizes[trigram] == 0) {
+                return 0;
+            }
+            if (rarest < 0 || postingSizes[trigram] < postingSizes[rarest]) {
+                rarest = trigram;
+            }
+        }
+
+        int[] posting = postings[rarest];
+        int checked = 0;
+        for (int i = 0; i < postingSizes[rarest]; i++) {
+            int slot = posting[i];
+            if (cleanedTitles[slot] != null) {
+                checked++;
+                if (cleanedTitles[slot].contains(cleanedQuery)) {
+                    matched[slot] = true;
+                }
+            }
+        }
+        return checked;
+    }
+
+    private static boolean isLengthFeasible(int queryLength, int titleLength, double tolerance) {
+        // without a substring match the score is 0.5 * (1 - d / maxLength), so d must stay below this bound
+        int maxLength = Math.max(queryLength, titleLength);
+        return maxLength > 0 && Math.abs(queryLength - titleLength) <= (1.0 - 2 * tolerance) * maxLength;
+    }
+
+    private void addSlot(Long bookId, String title) {
+        if (title == null) {
+            return;
+        }
+        int slot = slotCount++;
+        if (slot == ids.length) {
+            int capacity = Math.max(16, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            cleanedTitles = Arrays.copyOf(cleanedTitles, capacity);
+        }
+
+        String cleaned = StringMatchingUtil.cleanString(title);
+        ids[slot] = bookId;
+        titles[slot] = title;
+        cleanedTitles[slot] = cleaned;
+        slotById.put(bookId, slot);
+        liveCount++;
+
+        for (int i = 0; i + 3 <= cleaned.length(); i++) {
+            int trigram = trigramAt(cleaned, i);
+            int size = postingSizes[trigram];
+            // slots are appended in increasing order, so a repeated trigram shows up as the last entry
+            if (size > 0 && postings[trigram][size - 1] == slot) {
+                continue;
+            }
+            postings[trigram] = append(postings[trigram], size, slot);
+            postingSizes[trigram]++;
+        }
+
+        int length = title.length();
+        if (length >= lengthBuckets.length) {
+            int capacity = Math.max(length + 1, lengthBuckets.length * 2);
+            lengthBuckets = Arrays.copyOf(lengthBuckets, capacity);
+            lengthBucketSizes = Arrays.copyOf(lengthBucketSizes, capacity);
+        }
+        lengthBuckets[length] = append(lengthBuckets[length], lengthBucketSizes[length], slot);
+        lengthBucketSizes[length]++;
+    }
+
+    private void removeSlot(Long bookId) {
+        Integer slot = slotById.remove(bookId);
+        if (slot == null) {
+            return;
+        }
+        // postings are left in place and skipped through the null tombstone until the next compaction
+        titles[slot] = null;
+        cleanedTitles[slot] = null;
+        liveCount--;
+    }
+
+    private void compactIfNeeded() {
+        int dead = slotCount - liveCount;
+        if (dead < 1024 || dead < liveCount) {
+            return;
+        }
+
+        Map<Long, String> live = new LinkedHashMap<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (titles[slot] != null) {
+                live.put(ids[slot], titles[slot]);
+            }
+        }
+        clear(live.size());
+        for (Map.Entry<Long, String> entry : live.entrySet()) {
+            addSlot(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void clear(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new long[capacity];
+        titles = new String[capacity];
+        cleanedTitles = new String[capacity];
+        slotCount = 0;
+        liveCount = 0;
+        slotById.clear();
+        postings = new int[TRIGRAM_SPACE][];
+        postingSizes = new int[TRIGRAM_SPACE];
+        lengthBuckets = new int[0][];
+        lengthBucketSizes = new int[0];
+    }
+
+    private static int[] append(int[] array, int size, int value) {
+        if (array == null) {
+            array = new int[4];
+        } else if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+
+    private static int trigramAt(String cleaned, int offset) {
+        return (charIndex(cleaned.charAt(offset)) * ALPHABET + charIndex(cleaned.charAt(offset + 1))) * ALPHABET
+                + charIndex(cleaned.charAt(offset + 2));
+    }
+
+    private static int charIndex(char c) {
+        return c <= '9' ? c - '0' : c - 'a' + 10;
+    }
+}
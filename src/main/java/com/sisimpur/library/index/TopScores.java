@@ -0,0 +1,54 @@
+package com.sisimpur.library.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best k scored ids seen so far in a bounded min-heap. Higher scores rank first and equal
+ * scores are ordered by ascending id, so the result does not depend on the order candidates arrive in.
+ */
+public class TopScores {
+
+    public record Entry(long id, double score) {
+    }
+
+    // head of the heap is the entry that would be dropped next
+    private static final Comparator<Entry> WORST_FIRST = Comparator.comparingDouble(Entry::score)
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    private final int capacity;
+    private final PriorityQueue<Entry> heap;
+
+    public TopScores(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity, WORST_FIRST);
+    }
+
+    public void offer(long id, double score) {
+        Entry entry = new Entry(id, score);
+        if (heap.size() < capacity) {
+            heap.add(entry);
+        } else if (WORST_FIRST.compare(entry, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(entry);
+        }
+    }
+
+    // whether a candidate whose score is at most `bound` could still get in
+    public boolean canBeat(double bound, double minScore) {
+        return heap.size() < capacity ? bound > minScore : bound >= heap.peek().score();
+    }
+
+    // threshold to pass to StringMatchingUtil.scoreIfAbove for the next candidate
+    public double cutoff(double minScore) {
+        return heap.size() < capacity ? minScore : Math.nextDown(heap.peek().score());
+    }
+
+    public List<Entry> best() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(WORST_FIRST.reversed());
+        return entries;
+    }
+}
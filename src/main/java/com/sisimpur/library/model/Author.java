@@ -1,27 +1,48 @@
 package com.sisimpur.library.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.search.engine.backend.types.Highlightable;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+
 @Setter
 @Getter
+// books reference their author through a lazy proxy when they are created by id
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "authors")
 @Table(name = "authors")
 @NoArgsConstructor
 @AllArgsConstructor
 public class Author {
 
+    // pooled sequence ids keep JDBC batching on; allocationSize must match INCREMENT BY, checked on startup
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "authors_id_seq")
+    @SequenceGenerator(name = "authors_id_seq", sequenceName = "authors_id_seq", allocationSize = 50)
     private Long id;
 
+    @FullTextField(projectable = Projectable.YES, highlightable = Highlightable.ANY)
     @Column(name = "name", length = 100)
     private String name;
 
+    @FullTextField(projectable = Projectable.YES, highlightable = Highlightable.ANY)
     @Column(name = "bio", columnDefinition = "TEXT")
     private String bio;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
 }
 
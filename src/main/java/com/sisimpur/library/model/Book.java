@@ -1,23 +1,45 @@
 package com.sisimpur.library.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.search.engine.backend.types.Highlightable;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.mapper.pojo.automaticindexing.ReindexOnUpdate;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexingDependency;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+
 @Setter
 @Getter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
 @Table(name = "books")
+@Indexed(index = "books")
+// for loaders that cannot take a join fetch, such as the full-text hits
+@NamedEntityGraph(name = Book.WITH_AUTHOR, attributeNodes = @NamedAttributeNode("author"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Book {
 
+    public static final String WITH_AUTHOR = "Book.withAuthor";
+
+    // pooled sequence ids keep JDBC batching on; allocationSize must match INCREMENT BY, checked on startup
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_id_seq")
+    @SequenceGenerator(name = "books_id_seq", sequenceName = "books_id_seq", allocationSize = 50)
     private Long id;
 
+    @FullTextField(projectable = Projectable.YES, highlightable = Highlightable.ANY)
     @Column(name = "title", length = 255)
     private String title;
 
@@ -28,11 +50,21 @@ public class Book {
     private int publishedYear;
 
     // Add more fields as needed
-    @ManyToOne
+    // author name and bio are copied into the book document; Author has no books collection to follow
+    // back, so AuthorService reindexes an author's books itself when the author changes
+    @IndexedEmbedded(includePaths = {"name", "bio"})
+    @IndexingDependency(reindexOnUpdate = ReindexOnUpdate.SHALLOW)
+    // lazy: queries that return books to clients fetch the author (and user) in the same statement
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)  // Foreign key reference
     private Author author;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = true)
     private User user;
+
+    // set on every write through Hibernate; the JDBC circulation updates set it themselves
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
 }
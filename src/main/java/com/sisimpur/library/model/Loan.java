@@ -0,0 +1,40 @@
+package com.sisimpur.library.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+
+// one borrowing of one copy; rows are written with plain JDBC by the circulation paths, so the entity is read-only
+@Getter
+@Entity
+@Immutable
+@Table(name = "loans")
+@NoArgsConstructor
+public class Loan {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", nullable = false)
+    private Book book;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "borrowed_at", nullable = false)
+    private Instant borrowedAt;
+
+    @Column(name = "due_at", nullable = false)
+    private Instant dueAt;
+
+    @Column(name = "returned_at")
+    private Instant returnedAt;
+
+    @Column(name = "overdue_notified_at")
+    private Instant overdueNotifiedAt;
+}
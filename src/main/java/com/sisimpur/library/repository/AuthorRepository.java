@@ -1,8 +1,17 @@
 package com.sisimpur.library.repository;
 
+import com.sisimpur.library.dto.AuthorNameView;
 import com.sisimpur.library.model.Author;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface AuthorRepository extends JpaRepository<Author, Long> {
-}
 
+    List<Author> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("select a.id as id, a.name as name from Author a")
+    List<AuthorNameView> findAllNames();
+}
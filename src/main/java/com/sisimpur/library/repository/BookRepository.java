@@ -1,15 +1,100 @@
 package com.sisimpur.library.repository;
 
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.dto.BookSummary;
+import com.sisimpur.library.dto.BookAuthorTitleView;
+import com.sisimpur.library.dto.BookTitleView;
+import com.sisimpur.library.dto.GenreCountView;
 import com.sisimpur.library.model.Author;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 import com.sisimpur.library.model.Book;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
     public List<Book> findByAuthor(Author author);
+    @EntityGraph(attributePaths = {"author", "user"})
     List<Book> findByPublishedYear(int publishedYear);
+    @EntityGraph(attributePaths = {"author", "user"})
     List<Book> findByUserIsNull();
-}
\ No newline at end of file
+
+    @EntityGraph(attributePaths = {"author", "user"})
+    List<Book> findByIdIn(Collection<Long> ids);
+
+    // export cursor: fetched in batches of the fetch size, never cached or dirty-checked, and kept out of
+    // the second-level cache so a full export does not flush it
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select b from Book b join fetch b.author left join fetch b.user order by b.id")
+    Stream<Book> streamAllForExport();
+
+    // keyset page: rows after the given id, with author and borrower fetched in the same statement
+    @EntityGraph(attributePaths = {"author", "user"})
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // keyset page of the lean read model, straight from one join; no entities are loaded or cached
+    @Query("select new com.sisimpur.library.dto.BookSummary(b.id, b.title, b.genre, b.publishedYear, a.id, a.name, " +
+            "case when b.user is null then true else false end) " +
+            "from Book b join b.author a where b.id > :after order by b.id")
+    List<BookSummary> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    @Query("select b.id as id, b.title as title from Book b")
+    List<BookTitleView> findAllTitles();
+
+    @Query("select b.id from Book b where b.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Query("select b.id from Book b where b.author.id = :authorId")
+    List<Long> findIdsByAuthorId(@Param("authorId") Long authorId);
+
+    @Query("select b.genre as genre, count(b) as books from Book b where b.genre is not null group by b.genre")
+    List<GenreCountView> findGenreCounts();
+
+    @Query("select b.genre from Book b where b.author.id = :authorId")
+    List<String> findGenresByAuthorId(@Param("authorId") Long authorId);
+
+    // the aggregate AvailabilityCounters is reconciled with
+    @Query("select new com.sisimpur.library.dto.AvailabilityCount(b.author.id, b.genre, count(b), " +
+            "sum(case when b.user is null then 1L else 0L end)) from Book b group by b.author.id, b.genre")
+    List<AvailabilityCount> countAvailability();
+
+    // what a database cascade is about to take away, collected before it runs
+    @Query("select new com.sisimpur.library.dto.AvailabilityCount(b.author.id, b.genre, count(b), " +
+            "sum(case when b.user is null then 1L else 0L end)) from Book b where b.author.id = :authorId " +
+            "group by b.author.id, b.genre")
+    List<AvailabilityCount> countAvailabilityByAuthorId(@Param("authorId") Long authorId);
+
+    // the copies a user holds, as the change their release makes: as many available again, none added
+    @Query("select new com.sisimpur.library.dto.AvailabilityCount(b.author.id, b.genre, 0L, count(b)) " +
+            "from Book b where b.user.id = :userId group by b.author.id, b.genre")
+    List<AvailabilityCount> countReleasedByUserId(@Param("userId") Long userId);
+
+    @Query("select b from Book b join fetch b.author left join fetch b.user where b.genre in :genres order by b.id")
+    List<Book> findByGenreIn(@Param("genres") Collection<String> genres);
+
+    // author and borrower come back in the same statement instead of one select per distinct row
+    @Query("select b from Book b join fetch b.author left join fetch b.user " +
+            "where b.author.id in :authorIds order by b.author.id, b.id")
+    List<Book> findByAuthorIdIn(@Param("authorIds") Collection<Long> authorIds);
+
+    @Query("select b.id as id, b.title as title, b.author.id as authorId from Book b where b.author.id in :authorIds")
+    List<BookAuthorTitleView> findTitlesByAuthorIdIn(@Param("authorIds") Collection<Long> authorIds);
+
+    long countByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,49 @@
+package com.sisimpur.library.repository;
+
+import com.sisimpur.library.model.Book;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+// indexed predicates used by BookService.filterBooks
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> publishedYear(int year) {
+        return (root, query, cb) -> cb.equal(root.get("publishedYear"), year);
+    }
+
+    public static Specification<Book> available() {
+        return (root, query, cb) -> cb.isNull(root.get("user"));
+    }
+
+    public static Specification<Book> genreIn(Collection<String> genres) {
+        return (root, query, cb) -> root.get("genre").in(genres);
+    }
+
+    public static Specification<Book> authorIdIn(Collection<Long> authorIds) {
+        return (root, query, cb) -> root.get("author").get("id").in(authorIds);
+    }
+
+    public static Specification<Book> idGreaterThan(long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    public static Specification<Book> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    // loads author and borrower in the same statement; skipped for count queries, where fetches are not allowed
+    public static Specification<Book> fetchAuthorAndUser() {
+        return (root, query, cb) -> {
+            if (query != null && !Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                root.fetch("author", JoinType.INNER);
+                root.fetch("user", JoinType.LEFT);
+            }
+            return cb.conjunction();
+        };
+    }
+}
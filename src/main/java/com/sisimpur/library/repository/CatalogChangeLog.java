@@ -0,0 +1,67 @@
+package com.sisimpur.library.repository;
+
+import com.sisimpur.library.index.CatalogVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Appends to the catalog_changes table behind the change feed. Rows are written in the caller's transaction,
+ * so a change is visible exactly when the write it describes commits, and disappears with it on rollback.
+ *
+ * Each row carries the id of the transaction that wrote it. Sequence values are handed out before commit, so
+ * a later seq can commit first; ordering the feed by (xid, seq) and only reading transactions older than
+ * every one still running keeps the feed append-only from a reader's point of view.
+ *
+ * Recording a change also holds the ETag versions of the changed entities open until the transaction ends,
+ * see CatalogVersions.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogChangeLog {
+
+    public enum Entity { BOOK, AUTHOR }
+
+    public enum Change { UPSERT, DELETE, AVAILABILITY }
+
+    private static final String INSERT_CHANGE =
+            "insert into catalog_changes (entity_type, entity_id, change_type) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogVersions catalogVersions;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Entity entity, Collection<Long> ids, Change change) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[]{entity.name(), id, change.name()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, rows, new int[]{Types.VARCHAR, Types.BIGINT, Types.VARCHAR});
+
+        List<Long> changedIds = List.copyOf(ids);
+        catalogVersions.beginWrite(entity, changedIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                catalogVersions.endWrite(entity, changedIds);
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Entity entity, Long id, Change change) {
+        record(entity, List.of(id), change);
+    }
+}
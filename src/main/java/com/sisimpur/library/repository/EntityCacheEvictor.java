@@ -0,0 +1,42 @@
+package com.sisimpur.library.repository;
+
+import com.sisimpur.library.model.Book;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Second-level cache eviction for writes Hibernate does not see: plain JDBC updates and the ON DELETE
+ * CASCADE / SET NULL rules in the schema. Entries are dropped right away and again once the transaction
+ * ends, so a reader cannot put the old row back in between.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void evictBooks(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache();
+        List<Long> ids = List.copyOf(bookIds);
+        ids.forEach(id -> cache.evict(Book.class, id));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(id -> cache.evict(Book.class, id));
+                }
+            });
+        }
+    }
+}
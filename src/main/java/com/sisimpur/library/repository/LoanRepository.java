@@ -0,0 +1,22 @@
+package com.sisimpur.library.repository;
+
+import com.sisimpur.library.dto.LoanView;
+import com.sisimpur.library.model.Loan;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface LoanRepository extends JpaRepository<Loan, Long> {
+
+    // keyset pages over idx_loans_user / idx_loans_user_open, with the title from one join
+    @Query("select new com.sisimpur.library.dto.LoanView(l.id, b.id, b.title, l.borrowedAt, l.dueAt, l.returnedAt) " +
+            "from Loan l join l.book b where l.user.id = :userId and l.id > :after order by l.id")
+    List<LoanView> findByUserAfter(@Param("userId") Long userId, @Param("after") Long after, Limit limit);
+
+    @Query("select new com.sisimpur.library.dto.LoanView(l.id, b.id, b.title, l.borrowedAt, l.dueAt, l.returnedAt) " +
+            "from Loan l join l.book b where l.user.id = :userId and l.returnedAt is null and l.id > :after order by l.id")
+    List<LoanView> findOpenByUserAfter(@Param("userId") Long userId, @Param("after") Long after, Limit limit);
+}
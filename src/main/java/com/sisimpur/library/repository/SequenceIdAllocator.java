@@ -0,0 +1,61 @@
+package com.sisimpur.library.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reserves entity ids for plain JDBC inserts using the same pooled scheme as Hibernate: every nextval hands
+ * out the block of ALLOCATION_SIZE ids ending at the returned value, so both can share the sequence safely.
+ */
+@Component
+@RequiredArgsConstructor
+public class SequenceIdAllocator {
+
+    // must match allocationSize on the entities and INCREMENT BY in db/init.sql
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final List<String> POOLED_SEQUENCES = List.of("users_id_seq", "authors_id_seq", "books_id_seq");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // a sequence still stepping by 1 makes consecutive blocks overlap, so refuse to start rather than collide
+    @PostConstruct
+    void verifyIncrements() {
+        Map<String, Long> increments = new HashMap<>();
+        jdbcTemplate.query("select sequencename, increment_by from pg_sequences where sequencename in (?, ?, ?)",
+                rs -> {
+                    increments.put(rs.getString("sequencename"), rs.getLong("increment_by"));
+                }, POOLED_SEQUENCES.toArray());
+        for (String sequence : POOLED_SEQUENCES) {
+            Long increment = increments.get(sequence);
+            if (increment == null || increment != ALLOCATION_SIZE) {
+                throw new IllegalStateException("Sequence " + sequence + " increments by " + increment + ", expected "
+                        + ALLOCATION_SIZE + "; run db/upgrade.sql against this database");
+            }
+        }
+    }
+
+    public List<Long> allocate(String sequenceName, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+            List<Long> highValues = jdbcTemplate.queryForList(
+                    "select nextval(?::regclass) from generate_series(1, ?)", Long.class, sequenceName, blocks);
+
+            for (Long high : highValues) {
+                // a fresh sequence starts at 1, which only leaves the ids from 1 up
+                for (long id = Math.max(1, high - ALLOCATION_SIZE + 1); id <= high && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
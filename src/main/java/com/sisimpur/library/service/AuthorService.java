@@ -1,13 +1,27 @@
 package com.sisimpur.library.service;
 
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.index.AuthorIdSet;
+import com.sisimpur.library.index.AuthorNameTable;
+import com.sisimpur.library.index.AvailabilityCounters;
+import com.sisimpur.library.index.GenreDictionary;
+import com.sisimpur.library.index.TitleTrigramIndex;
 import com.sisimpur.library.model.Author;
 import com.sisimpur.library.model.Book;
 import com.sisimpur.library.repository.AuthorRepository;
 import com.sisimpur.library.repository.BookRepository;
+import com.sisimpur.library.repository.CatalogChangeLog;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.repository.EntityCacheEvictor;
+import com.sisimpur.library.util.AfterCommit;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.server.ResponseStatusException;
@@ -24,15 +38,27 @@ public class AuthorService {
 
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
+    private final TitleTrigramIndex titleIndex;
+    private final AuthorNameTable authorNameTable;
+    private final AuthorIdSet authorIdSet;
+    private final GenreDictionary genreDictionary;
+    private final KeysetPager keysetPager;
+    private final EntityCacheEvictor cacheEvictor;
+    private final FullTextSearchService fullTextSearchService;
+    private final CatalogChangeLog changeLog;
+    private final AvailabilityCounters availabilityCounters;
 
     public Author getAuthorById(Long id){
         return authorRepository.findById(id).orElse(null);
     }
 
-    public List<Author> getAllAuthors() {
-        return authorRepository.findAll();
+    public CursorPage<Author> getAuthorsPage(String cursor, Integer limit) {
+        int pageSize = keysetPager.pageSize(limit);
+        List<Author> rows = authorRepository.findByIdGreaterThanOrderByIdAsc(keysetPager.after(cursor), Limit.of(pageSize + 1));
+        return keysetPager.page(rows, pageSize, Author::getId);
     }
 
+    @Transactional
     public Author updateAuthor(Long id, Map<String, String> authorData) {
         Optional<Author> optionalAuthor = authorRepository.findById(id);
         if (optionalAuthor.isEmpty()) {
@@ -58,9 +84,20 @@ public class AuthorService {
             author.setBio(bio);
         }
 
-        return authorRepository.save(author);
+        Author savedAuthor = authorRepository.save(author);
+        changeLog.record(Entity.AUTHOR, savedAuthor.getId(), Change.UPSERT);
+        Long authorId = savedAuthor.getId();
+        String savedName = savedAuthor.getName();
+        AfterCommit.run(() -> authorNameTable.put(authorId, savedName));
+
+        // every book embeds its author, both in API responses and in the full-text documents
+        List<Long> bookIds = bookRepository.findIdsByAuthorId(savedAuthor.getId());
+        changeLog.record(Entity.BOOK, bookIds, Change.UPSERT);
+        fullTextSearchService.indexBooks(bookIds);
+        return savedAuthor;
     }
 
+    @Transactional
     public Author createAuthor(Map<String, Object> authorData) {
         String name = (String) authorData.get("name");
 
@@ -79,6 +116,14 @@ public class AuthorService {
         author.setName(name);
         author.setBio(biography);
         Author savedAuthor = authorRepository.save(author);
+        changeLog.record(Entity.AUTHOR, savedAuthor.getId(), Change.UPSERT);
+        // the books below can still fail and roll the author back, so the indexes wait for the commit
+        Long authorId = savedAuthor.getId();
+        String savedName = savedAuthor.getName();
+        AfterCommit.run(() -> {
+            authorNameTable.put(authorId, savedName);
+            authorIdSet.add(authorId);
+        });
 
         List<Map<String, Object>> booksData = (List<Map<String, Object>>) authorData.get("books");
         List<Book> books = new ArrayList<>();
@@ -124,12 +169,23 @@ public class AuthorService {
 
         // Save all books if any
         if (!books.isEmpty()) {
-            bookRepository.saveAll(books);
+            for (Book savedBook : bookRepository.saveAll(books)) {
+                changeLog.record(Entity.BOOK, savedBook.getId(), Change.UPSERT);
+                Long bookId = savedBook.getId();
+                String title = savedBook.getTitle();
+                String genre = savedBook.getGenre();
+                AfterCommit.run(() -> {
+                    titleIndex.put(bookId, title);
+                    genreDictionary.add(genre);
+                });
+                availabilityCounters.adjust(new AvailabilityCount(authorId, genre, 1L, 1L));
+            }
         }
 
         return savedAuthor;
     }
 
+    @Transactional
     public void deleteAuthorById(Long id) {
         Optional<Author> existingAuthor = authorRepository.findById(id);
 
@@ -137,8 +193,24 @@ public class AuthorService {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Author not found with ID: " + id);
         }
 
+        // the cascade happens in the database, so collect what the in-memory indexes need first
+        List<Long> bookIds = bookRepository.findIdsByAuthorId(id);
+        List<String> bookGenres = bookRepository.findGenresByAuthorId(id);
+        List<AvailabilityCount> shelves = bookRepository.countAvailabilityByAuthorId(id);
+
         // Delete the author (Cascade delete will remove books)
         authorRepository.deleteById(id);
+        changeLog.record(Entity.AUTHOR, id, Change.DELETE);
+        changeLog.record(Entity.BOOK, bookIds, Change.DELETE);
+        cacheEvictor.evictBooks(bookIds);
+        fullTextSearchService.purgeBooks(bookIds);
+        AfterCommit.run(() -> {
+            bookIds.forEach(titleIndex::remove);
+            authorNameTable.remove(id);
+            authorIdSet.remove(id);
+            bookGenres.forEach(genreDictionary::remove);
+        });
+        availabilityCounters.adjust(shelves.stream().map(AvailabilityCount::negate).toList());
     }
 
 }
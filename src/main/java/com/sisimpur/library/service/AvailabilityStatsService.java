@@ -0,0 +1,81 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.index.AuthorIdSet;
+import com.sisimpur.library.index.AvailabilityCounters;
+import com.sisimpur.library.index.AvailabilityCounters.Counts;
+import com.sisimpur.library.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "N of M copies available" per genre and per author, read from AvailabilityCounters instead of counting
+ * books. The counters are loaded from one GROUP BY at startup and reconciled with it periodically.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvailabilityStatsService {
+
+    // a reconcile gives up when writes keep landing while the aggregate runs; the next one tries again
+    private static final int RECONCILE_ATTEMPTS = 5;
+
+    private final BookRepository bookRepository;
+    private final AvailabilityCounters availabilityCounters;
+    private final AuthorIdSet authorIdSet;
+
+    @PostConstruct
+    void loadCounters() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${library.stats.reconcile-interval:5m}",
+            initialDelayString = "${library.stats.reconcile-interval:5m}")
+    public void reconcile() {
+        for (int attempt = 1; attempt <= RECONCILE_ATTEMPTS; attempt++) {
+            if (availabilityCounters.reconcile(bookRepository::countAvailability)) {
+                return;
+            }
+        }
+        log.debug("availability counters not reconciled, writes kept landing; retrying next interval");
+    }
+
+    public List<Map<String, Object>> getGenreAvailability() {
+        List<Map<String, Object>> genres = new ArrayList<>();
+        availabilityCounters.allGenres().forEach((genre, counts) -> genres.add(genreStats(genre, counts)));
+        return genres;
+    }
+
+    public Map<String, Object> getGenreAvailability(String genre) {
+        return genreStats(genre, availabilityCounters.forGenre(genre));
+    }
+
+    public Map<String, Object> getAuthorAvailability(Long authorId) {
+        if (!authorIdSet.contains(authorId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Author not found with ID: " + authorId);
+        }
+        Counts counts = availabilityCounters.forAuthor(authorId);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("author_id", authorId);
+        stats.put("total", counts.total());
+        stats.put("available", counts.available());
+        return stats;
+    }
+
+    private static Map<String, Object> genreStats(String genre, Counts counts) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("genre", genre);
+        stats.put("total", counts.total());
+        stats.put("available", counts.available());
+        return stats;
+    }
+}
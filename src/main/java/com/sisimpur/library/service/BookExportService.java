@@ -0,0 +1,63 @@
+package com.sisimpur.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sisimpur.library.dto.BookExportRow;
+import com.sisimpur.library.model.Book;
+import com.sisimpur.library.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the whole catalog as NDJSON. Rows come through a server-side cursor and the persistence context is
+ * cleared every few hundred rows, so heap use does not grow with the size of the catalog.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookExportService {
+
+    private static final int CLEAR_INTERVAL = 500;
+
+    private final BookRepository bookRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void exportBooks(OutputStream outputStream) {
+        // postgres only keeps a cursor open inside a transaction, otherwise the driver reads every row up front
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        transaction.executeWithoutResult(status -> {
+            OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+            try (Stream<Book> books = bookRepository.streamAllForExport()) {
+                Iterator<Book> iterator = books.iterator();
+                int written = 0;
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(BookExportRow.from(iterator.next())));
+                    out.write('\n');
+
+                    if (++written % CLEAR_INTERVAL == 0) {
+                        entityManager.clear();
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
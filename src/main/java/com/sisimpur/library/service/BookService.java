@@ -1,43 +1,124 @@
 package com.sisimpur.library.service;
 
+import com.sisimpur.library.dto.AuthorNameView;
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.dto.BookAuthorTitleView;
 import com.sisimpur.library.dto.BookRequest;
+import com.sisimpur.library.dto.BookSummary;
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.dto.BookTitleView;
+import com.sisimpur.library.dto.GenreCountView;
+import com.sisimpur.library.dto.ScoredBook;
+import com.sisimpur.library.index.AuthorIdSet;
+import com.sisimpur.library.index.AuthorNameTable;
+import com.sisimpur.library.index.AvailabilityCounters;
+import com.sisimpur.library.index.GenreDictionary;
+import com.sisimpur.library.index.TitleTrigramIndex;
+import com.sisimpur.library.index.TopScores;
 import com.sisimpur.library.model.Author;
 import com.sisimpur.library.repository.AuthorRepository;
+import com.sisimpur.library.repository.CatalogChangeLog;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.repository.BookSpecifications;
+import com.sisimpur.library.util.AfterCommit;
 import com.sisimpur.library.util.StringMatchingUtil;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import com.sisimpur.library.model.Book;
 import com.sisimpur.library.repository.BookRepository;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Predicate;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class BookService {
 
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
+    private final TitleTrigramIndex titleIndex;
+    private final AuthorNameTable authorNameTable;
+    private final AuthorIdSet authorIdSet;
+    private final GenreDictionary genreDictionary;
+    private final KeysetPager keysetPager;
+    private final SearchMetrics searchMetrics;
+    private final SearchBackend searchBackend;
+    private final CatalogChangeLog changeLog;
+    private final AvailabilityCounters availabilityCounters;
+
+    final static double SEARCH_TOLERANCE = 0.12;
+
+    // keeps IN (...) lists well below the postgres bind parameter limit
+    private final static int ID_CHUNK_SIZE = 1000;
+
+    // rough cost of pulling one candidate row from the database, relative to scoring one title in memory
+    private final static int ROW_FETCH_COST = 4;
+
+    @PostConstruct
+    void buildSearchIndexes() {
+        Map<Long, String> titles = new HashMap<>();
+        for (BookTitleView view : bookRepository.findAllTitles()) {
+            titles.put(view.getId(), view.getTitle());
+        }
+        titleIndex.rebuild(titles);
+
+        Map<Long, String> authorNames = new HashMap<>();
+        for (AuthorNameView view : authorRepository.findAllNames()) {
+            authorNames.put(view.getId(), view.getName());
+        }
+        authorNameTable.rebuild(authorNames);
+        authorIdSet.rebuild(authorNames.keySet());
 
-    private final static double SEARCH_TOLERANCE = 0.12;
+        Map<String, Long> genreCounts = new HashMap<>();
+        for (GenreCountView view : bookRepository.findGenreCounts()) {
+            genreCounts.put(view.getGenre(), view.getBooks());
+        }
+        genreDictionary.rebuild(genreCounts);
+    }
 
     public Book getBook(Long id) {
         return bookRepository.findById(id).orElse(null);
 
     }
 
-    public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+    public CursorPage<Book> getBooksPage(String cursor, Integer limit) {
+        int pageSize = keysetPager.pageSize(limit);
+        List<Book> rows = bookRepository.findByIdGreaterThanOrderByIdAsc(keysetPager.after(cursor), Limit.of(pageSize + 1));
+        return keysetPager.page(rows, pageSize, Book::getId);
+    }
+
+    public CursorPage<BookSummary> getBookSummariesPage(String cursor, Integer limit) {
+        int pageSize = keysetPager.pageSize(limit);
+        List<BookSummary> rows = bookRepository.findSummariesAfter(keysetPager.after(cursor), Limit.of(pageSize + 1));
+        return keysetPager.page(rows, pageSize, BookSummary::id);
     }
 
     //refactored api
+    @Transactional
     public Book createBook(BookRequest bookData) {
         
-        Author author = authorRepository.findById(bookData.getAuthorId().longValue()).get() ;
-               
+        // AuthorExistsValidator has already checked the id, so the insert takes a reference rather than a
+        // loaded author; the author is only read when the response is serialised
+        long authorId = bookData.getAuthorId().longValue();
+        if (!authorIdSet.contains(authorId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Author not found with ID: " + authorId);
+        }
+        Author author = authorRepository.getReferenceById(authorId);
+
         // Prepare Book entity
         Book book = new Book();
         book.setTitle(bookData.getTitle().trim());
@@ -56,9 +137,39 @@ public class BookService {
         // Associate author
         book.setAuthor(author);
 
-        return bookRepository.save(book);
+        Book savedBook;
+        try {
+            // flushed here so a foreign key failure surfaces in this method instead of at commit
+            savedBook = bookRepository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            // anything but the author reference failing, e.g. a genre too long for its column, is not ours to explain
+            if (!isForeignKeyViolation(e)) {
+                throw e;
+            }
+            // the author was deleted outside this instance after it got into the in-memory set
+            authorIdSet.remove(authorId);
+            authorNameTable.remove(authorId);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Author not found with ID: " + authorId);
+        }
+        changeLog.record(Entity.BOOK, savedBook.getId(), Change.UPSERT);
+        Long bookId = savedBook.getId();
+        String title = savedBook.getTitle();
+        String savedGenre = savedBook.getGenre();
+        AfterCommit.run(() -> {
+            titleIndex.put(bookId, title);
+            genreDictionary.add(savedGenre);
+        });
+        availabilityCounters.adjust(new AvailabilityCount(authorId, savedGenre, 1L, 1L));
+        return savedBook;
     }
 
+    // SQLState 23503 is foreign_key_violation; a new book's only reference is its author, it has no borrower yet
+    private static boolean isForeignKeyViolation(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException sqlException
+                && "23503".equals(sqlException.getSQLState());
+    }
+
+    @Transactional
     public Book updateBook(Long bookId, Map<String, Object> bookData) {
 
         Optional<Book> existingBook = bookRepository.findById(bookId);
@@ -67,6 +178,8 @@ public class BookService {
         }
 
         Book book = existingBook.get();
+        String previousGenre = book.getGenre();
+        AvailabilityCount previousShelf = shelf(book);
 
         try {
             if (bookData.containsKey("title")) {
@@ -96,7 +209,19 @@ public class BookService {
                 book.setAuthor(author.get());
             }
 
-            return bookRepository.save(book);
+            Book savedBook = bookRepository.save(book);
+            changeLog.record(Entity.BOOK, savedBook.getId(), Change.UPSERT);
+            String title = savedBook.getTitle();
+            String genre = savedBook.getGenre();
+            AfterCommit.run(() -> {
+                titleIndex.put(bookId, title);
+                genreDictionary.replace(previousGenre, genre);
+            });
+            AvailabilityCount shelf = shelf(savedBook);
+            if (!shelf.equals(previousShelf)) {
+                availabilityCounters.adjust(List.of(previousShelf.negate(), shelf));
+            }
+            return savedBook;
 
         } catch (ClassCastException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid data type provided.");
@@ -105,6 +230,7 @@ public class BookService {
         }
     }
 
+    @Transactional
     public void deleteBook(Long bookId) {
         Optional<Book> existingBook = bookRepository.findById(bookId);
         if (existingBook.isEmpty()) {
@@ -112,104 +238,113 @@ public class BookService {
         }
 
         bookRepository.deleteById(bookId);
+        changeLog.record(Entity.BOOK, bookId, Change.DELETE);
+        String genre = existingBook.get().getGenre();
+        AfterCommit.run(() -> {
+            titleIndex.remove(bookId);
+            genreDictionary.remove(genre);
+        });
+        availabilityCounters.adjust(shelf(existingBook.get()).negate());
+    }
+
+    // the one copy a book adds to the availability counts of its author and genre
+    private static AvailabilityCount shelf(Book book) {
+        return new AvailabilityCount(book.getAuthor().getId(), book.getGenre(), 1L, book.getUser() == null ? 1L : 0L);
     }
 
     public List<Book> getBooksByAuthor(String authorName) {
+        return searchMetrics.timeSearch("author", () -> searchByAuthor(authorName));
+    }
+
+    public List<Book> getBooksByTitle(String bookTitle) {
+        return searchMetrics.timeSearch("title", () -> searchByTitle(bookTitle));
+    }
+
+    public List<Book> getBooksByGenre(String genreQuery) {
+        return searchMetrics.timeSearch("genre", () -> searchByGenre(genreQuery));
+    }
+
+    public List<Book> getBooksByPublishedYear(int year) {
+        return searchMetrics.timeSearch("year", () -> searchByPublishedYear(year));
+    }
+
+    public List<Book> getAvailableBooks() {
+        return searchMetrics.timeSearch("available", this::searchAvailable);
+    }
+
+    public CursorPage<Book> filterBooks(String author, String title, String genre, Integer publishedYear,
+                                        Boolean available, String cursor, Integer limit) {
+        return searchMetrics.timeSearch("filter",
+                () -> searchByFilter(author, title, genre, publishedYear, available, cursor, limit));
+    }
+
+    public List<ScoredBook> rankBooks(String author, String title, Double minScore, Integer limit) {
+        return searchMetrics.timeSearch("ranked", () -> searchRanked(author, title, minScore, limit));
+    }
+
+    private List<Book> searchByAuthor(String authorName) {
         if (authorName == null || authorName.trim().isEmpty()) {
             throw new IllegalArgumentException("Author name cannot be empty");
         }
 
-        List<Author> allAuthors = authorRepository.findAll();
+        // names are scored against the cached table, then all matching books come back in batched queries
+        List<Long> matchingAuthorIds = scoreAuthors(authorName);
 
-        // If no authors exist, return empty list
-        if (allAuthors.isEmpty()) {
+        if (matchingAuthorIds.isEmpty()) {
             return Collections.emptyList();
         }
 
         List<Book> matchingBooks = new ArrayList<>();
-
-        for (Author author : allAuthors) {
-            double score = StringMatchingUtil.calculateCombinedScore(authorName, author.getName());
-
-            if (score > SEARCH_TOLERANCE) {
-                List<Book> booksByAuthor = bookRepository.findByAuthor(author);
-                matchingBooks.addAll(booksByAuthor);
-            }
-        }
-
-        if (matchingBooks.isEmpty()) {
-            return Collections.emptyList();
+        for (int from = 0; from < matchingAuthorIds.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = matchingAuthorIds.subList(from, Math.min(from + ID_CHUNK_SIZE, matchingAuthorIds.size()));
+            matchingBooks.addAll(bookRepository.findByAuthorIdIn(chunk));
         }
 
         return matchingBooks;
     }
 
-    public List<Book> getBooksByTitle(String bookTitle) {
+    private List<Book> searchByTitle(String bookTitle) {
         if (bookTitle == null || bookTitle.trim().isEmpty()) {
             throw new IllegalArgumentException("Book title cannot be empty");
         }
 
-        List<Book> allBooks = bookRepository.findAll();
+        // only titles that can still score above the tolerance are looked at, then fetched by id
+        List<Long> matchingIds = scoreTitles(bookTitle);
 
-        if (allBooks.isEmpty()) {
+        if (matchingIds.isEmpty()) {
             return Collections.emptyList();
         }
 
-        List<Book> matchingBooks = new ArrayList<>();
-
-        for (Book book : allBooks) {
-            double score = StringMatchingUtil.calculateCombinedScore(bookTitle, book.getTitle());
-
-            if (score > SEARCH_TOLERANCE) {
-                matchingBooks.add(book);
-            }
-        }
+        return findBooksByIds(matchingIds);
+    }
 
-        // If no matching books found, return empty response
-        if (matchingBooks.isEmpty()) {
-            return Collections.emptyList();
+    private List<Book> findBooksByIds(List<Long> ids) {
+        List<Book> books = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            books.addAll(bookRepository.findByIdIn(chunk));
         }
-
-        return matchingBooks;
+        books.sort(Comparator.comparing(Book::getId));
+        return books;
     }
 
-    public List<Book> getBooksByGenre(String genreQuery) {
+    private List<Book> searchByGenre(String genreQuery) {
 
         if (genreQuery == null || genreQuery.trim().isEmpty()) {
             throw new IllegalArgumentException("Genre cannot be empty");
         }
 
-        // fetching all books
-        List<Book> allBooks = bookRepository.findAll();
+        // the query is resolved against the distinct genres, then books come from an equality lookup
+        List<String> bestGenres = scoreGenres(genreQuery);
 
-        if (allBooks.isEmpty()) {
+        if (bestGenres.isEmpty()) {
             return Collections.emptyList();
         }
 
-        List<Book> bestMatches = new ArrayList<>();
-        double highestScore = 0.0;
-
-        for (Book book : allBooks) {
-            String genre = book.getGenre();
-            if (genre == null || genre.trim().isEmpty()) {
-                continue;
-            }
-
-            double score = StringMatchingUtil.calculateCombinedScore(genreQuery, genre);
-
-            if (score > highestScore) {
-                highestScore = score;
-                bestMatches.clear();
-                bestMatches.add(book);
-            } else if (score == highestScore) {
-                bestMatches.add(book);
-            }
-        }
-
-        return bestMatches;
+        return bookRepository.findByGenreIn(bestGenres);
     }
 
-    public List<Book> getBooksByPublishedYear(int year) {
+    private List<Book> searchByPublishedYear(int year) {
         List<Book> books = bookRepository.findByPublishedYear(year);
         if (books.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No books found for the given published year.");
@@ -217,7 +352,7 @@ public class BookService {
         return books;
     }
 
-    public List<Book> getAvailableBooks() {
+    private List<Book> searchAvailable() {
         List<Book> books = bookRepository.findByUserIsNull();
         if (books.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No available books found.");
@@ -225,42 +360,250 @@ public class BookService {
         return books;
     }
 
-    // let's combine these queries
+    // filter engine: indexed predicates (year, availability, resolved genres, resolved authors) run as one
+    // SQL query, and fuzzy title scoring only runs over whatever that leaves, unless the index is cheaper.
+    // Either way rows are walked in id order and the walk stops as soon as the page is full.
+
+    private CursorPage<Book> searchByFilter(String author, String title, String genre, Integer publishedYear,
+                                            Boolean available, String cursor, Integer limit) {
 
-    public List<Book> filterBooks(String author, String title, String genre, Integer publishedYear, Boolean available) {
+        int pageSize = keysetPager.pageSize(limit);
+        long after = keysetPager.after(cursor);
 
-        Set<Book> resultSet = null;
+        boolean hasAuthor = author != null && !author.isEmpty();
+        boolean hasTitle = title != null && !title.isEmpty();
+        boolean hasGenre = genre != null && !genre.isEmpty();
+        boolean onlyAvailable = available != null && available;
 
-        if (author != null && !author.isEmpty()) {
-            resultSet = new HashSet<>(getBooksByAuthor(author));
+        if (!hasAuthor && !hasTitle && !hasGenre && publishedYear == null && !onlyAvailable) {
+            return CursorPage.empty();
         }
 
-        if (title != null && !title.isEmpty()) {
-            Set<Book> titleMatches = new HashSet<>(getBooksByTitle(title));
-            resultSet = (resultSet == null) ? titleMatches : intersection(resultSet, titleMatches);
+        List<Specification<Book>> predicates = new ArrayList<>();
+        List<String> plan = new ArrayList<>();
+
+        if (publishedYear != null) {
+            predicates.add(BookSpecifications.publishedYear(publishedYear));
+            plan.add("published_year");
         }
 
-        if (genre != null && !genre.isEmpty()) {
-            Set<Book> genreMatches = new HashSet<>(getBooksByGenre(genre));
-            resultSet = (resultSet == null) ? genreMatches : intersection(resultSet, genreMatches);
+        if (onlyAvailable) {
+            predicates.add(BookSpecifications.available());
+            plan.add("user_id is null");
         }
 
-        if (publishedYear != null) {
-            Set<Book> yearMatches = new HashSet<>(getBooksByPublishedYear(publishedYear));
-            resultSet = (resultSet == null) ? yearMatches : intersection(resultSet, yearMatches);
+        if (hasGenre) {
+            // the best-matching genre strings are resolved first, which turns the genre into an equality lookup
+            List<String> genres = scoreGenres(genre);
+            if (genres.isEmpty()) {
+                return CursorPage.empty();
+            }
+            predicates.add(BookSpecifications.genreIn(genres));
+            plan.add("genre in " + genres.size());
         }
 
-        if (available != null && available) {
-            Set<Book> availabilityMatches = new HashSet<>(getAvailableBooks());
-            resultSet = (resultSet == null) ? availabilityMatches : intersection(resultSet, availabilityMatches);
+        Predicate<Book> inMemoryFilter = book -> true;
+        if (hasAuthor) {
+            List<Long> authorIds = scoreAuthors(author);
+            if (authorIds.isEmpty()) {
+                return CursorPage.empty();
+            }
+            if (authorIds.size() <= ID_CHUNK_SIZE) {
+                predicates.add(BookSpecifications.authorIdIn(authorIds));
+                plan.add("author_id in " + authorIds.size());
+            } else {
+                // too many ids for a single IN list, so they are checked on the candidates instead
+                Set<Long> allowedAuthors = new HashSet<>(authorIds);
+                inMemoryFilter = book -> allowedAuthors.contains(book.getAuthor().getId());
+                plan.add("authors in memory " + authorIds.size());
+            }
         }
 
-        return (resultSet == null) ? Collections.emptyList() : new ArrayList<>(resultSet);
+        List<Book> rows;
+        if (!hasTitle) {
+            rows = scanByPredicates(predicates, inMemoryFilter, after, pageSize + 1);
+            log.debug("filterBooks plan=[sql({})] rows={}", String.join(", ", plan), rows.size());
+        } else if (predicates.isEmpty()) {
+            List<Long> titleMatches = scoreTitles(title);
+            rows = scanByIds(titleMatches, predicates, inMemoryFilter, after, pageSize + 1);
+            log.debug("filterBooks plan=[title index -> fetch({})] titleMatches={} rows={}",
+                    String.join(", ", plan), titleMatches.size(), rows.size());
+        } else {
+            long candidates = bookRepository.count(Specification.allOf(predicates));
+
+            if (searchBackend.scoresInJvm() && candidates * ROW_FETCH_COST <= titleIndex.size()) {
+                // scoring happens row by row between fetches, so it is measured here rather than as one pass
+                long[] titleScan = new long[3]; // rows scored, rows matched, nanos spent scoring
+                Predicate<Book> titleFilter = book -> {
+                    long started = System.nanoTime();
+                    boolean match = book.getTitle() != null
+                            && StringMatchingUtil.isMatch(title, book.getTitle(), SEARCH_TOLERANCE);
+                    titleScan[0]++;
+                    titleScan[1] += match ? 1 : 0;
+                    titleScan[2] += System.nanoTime() - started;
+                    return match;
+                };
+                rows = scanByPredicates(predicates, inMemoryFilter.and(titleFilter), after, pageSize + 1);
+                searchMetrics.recordScoring("title", titleScan[0], titleScan[1], titleScan[2]);
+                log.debug("filterBooks plan=[sql({}) -> title scan] candidates={} rows={}",
+                        String.join(", ", plan), candidates, rows.size());
+            } else {
+                List<Long> titleMatches = scoreTitles(title);
+                rows = scanByIds(titleMatches, predicates, inMemoryFilter, after, pageSize + 1);
+                log.debug("filterBooks plan=[title index -> sql({})] candidates={} titleMatches={} rows={}",
+                        String.join(", ", plan), candidates, titleMatches.size(), rows.size());
+            }
+        }
+
+        return keysetPager.page(rows, pageSize, Book::getId);
     }
 
-    private Set<Book> intersection(Set<Book> set1, Set<Book> set2) {
-        set1.retainAll(set2);
-        return set1;
+    // ranked mode: only the best `limit` books are kept while scoring, in a bounded heap. With both criteria
+    // a book's score is the mean of its title and author scores, and each of them still has to be a match.
+    private List<ScoredBook> searchRanked(String author, String title, Double minScore, Integer limit) {
+        boolean hasAuthor = author != null && !author.isEmpty();
+        boolean hasTitle = title != null && !title.isEmpty();
+        if (!hasAuthor && !hasTitle) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ranked search needs a title or an author.");
+        }
+        double floor = minScore != null ? minScore : SEARCH_TOLERANCE;
+        if (floor < 0 || floor >= 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minScore must be at least 0 and below 1.");
+        }
+        int k = keysetPager.pageSize(limit);
+
+        if (!hasAuthor) {
+            return loadRanked(searchMetrics.timeScoring("title", () -> titleIndex.rank(title, floor, k)));
+        }
+
+        // author scores decide the order on their own, or bound what the title still has to make up.
+        // Authors are ranked a page at a time and their books scored from id/title projections, so neither
+        // the matching authors nor their books are held beyond one page, and only the final k are loaded.
+        double authorFloor = hasTitle ? SEARCH_TOLERANCE : floor;
+        TopScores top = new TopScores(k);
+        TopScores.Entry lastAuthor = null;
+        while (true) {
+            TopScores.Entry after = lastAuthor;
+            List<TopScores.Entry> authors = searchMetrics.timeScoring("author",
+                    () -> authorNameTable.rank(author, authorFloor, after, ID_CHUNK_SIZE));
+            // authors come best first, so once the best remaining one cannot beat the heap nothing else can
+            if (authors.isEmpty()
+                    || !top.canBeat(hasTitle ? (1.0 + authors.get(0).score()) / 2 : authors.get(0).score(), floor)) {
+                break;
+            }
+
+            Map<Long, Double> authorScores = new HashMap<>();
+            authors.forEach(entry -> authorScores.put(entry.id(), entry.score()));
+            for (BookAuthorTitleView book : bookRepository.findTitlesByAuthorIdIn(authorScores.keySet())) {
+                double authorScore = authorScores.get(book.getAuthorId());
+                if (!hasTitle) {
+                    top.offer(book.getId(), authorScore);
+                    continue;
+                }
+                if (book.getTitle() == null) {
+                    continue;
+                }
+                // (titleScore + authorScore) / 2 has to clear the cutoff, and the title has to match by itself
+                double titleCutoff = Math.max(SEARCH_TOLERANCE, 2 * top.cutoff(floor) - authorScore);
+                double titleScore = StringMatchingUtil.scoreIfAbove(title, book.getTitle(), titleCutoff);
+                if (titleScore != StringMatchingUtil.NO_MATCH) {
+                    top.offer(book.getId(), (titleScore + authorScore) / 2);
+                }
+            }
+
+            if (authors.size() < ID_CHUNK_SIZE) {
+                break;
+            }
+            lastAuthor = authors.get(authors.size() - 1);
+        }
+
+        return loadRanked(top.best());
+    }
+
+    // loads the ranked books in one go and keeps the ranking order; books deleted meanwhile are dropped
+    private List<ScoredBook> loadRanked(List<TopScores.Entry> top) {
+        Map<Long, Book> books = new HashMap<>();
+        for (Book book : findBooksByIds(top.stream().map(TopScores.Entry::id).sorted().toList())) {
+            books.put(book.getId(), book);
+        }
+        List<ScoredBook> ranked = new ArrayList<>(top.size());
+        for (TopScores.Entry entry : top) {
+            Book book = books.get(entry.id());
+            if (book != null) {
+                ranked.add(new ScoredBook(book, entry.score()));
+            }
+        }
+        return ranked;
+    }
+
+    private List<Long> scoreTitles(String title) {
+        return searchMetrics.timeScoring("title", () -> searchBackend.matchTitles(title));
+    }
+
+    private List<Long> scoreAuthors(String authorName) {
+        return searchMetrics.timeScoring("author", () -> searchBackend.matchAuthors(authorName));
+    }
+
+    private List<String> scoreGenres(String genreQuery) {
+        return searchMetrics.timeScoring("genre", () -> searchBackend.bestGenres(genreQuery));
+    }
+
+    // walks books matching the predicates in id order, in batches, until enough of them pass the filter
+    private List<Book> scanByPredicates(List<Specification<Book>> predicates, Predicate<Book> filter,
+                                        long after, int wanted) {
+        List<Book> rows = new ArrayList<>();
+        long lastId = after;
+
+        while (rows.size() < wanted) {
+            List<Specification<Book>> batchPredicates = new ArrayList<>(predicates);
+            batchPredicates.add(BookSpecifications.idGreaterThan(lastId));
+            batchPredicates.add(BookSpecifications.fetchAuthorAndUser());
+
+            List<Book> batch = bookRepository.findBy(Specification.allOf(batchPredicates),
+                    query -> query.sortBy(Sort.by("id")).limit(ID_CHUNK_SIZE).all());
+
+            for (Book book : batch) {
+                if (filter.test(book)) {
+                    rows.add(book);
+                    if (rows.size() == wanted) {
+                        break;
+                    }
+                }
+            }
+            if (batch.size() < ID_CHUNK_SIZE) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        return rows;
+    }
+
+    // same walk over a precomputed, ascending id list, checking the predicates one chunk of ids at a time
+    private List<Book> scanByIds(List<Long> ids, List<Specification<Book>> predicates, Predicate<Book> filter,
+                                 long after, int wanted) {
+        List<Book> rows = new ArrayList<>();
+
+        int from = Collections.binarySearch(ids, after + 1);
+        from = from < 0 ? -from - 1 : from;
+
+        while (from < ids.size() && rows.size() < wanted) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            from += chunk.size();
+
+            List<Specification<Book>> chunkPredicates = new ArrayList<>(predicates);
+            chunkPredicates.add(BookSpecifications.idIn(chunk));
+            chunkPredicates.add(BookSpecifications.fetchAuthorAndUser());
+
+            for (Book book : bookRepository.findAll(Specification.allOf(chunkPredicates), Sort.by("id"))) {
+                if (filter.test(book)) {
+                    rows.add(book);
+                    if (rows.size() == wanted) {
+                        break;
+                    }
+                }
+            }
+        }
+        return rows;
     }
 
 }
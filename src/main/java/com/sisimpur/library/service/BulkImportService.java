@@ -0,0 +1,369 @@
+package com.sisimpur.library.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sisimpur.library.config.ImportProperties;
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.dto.ImportBatchReport;
+import com.sisimpur.library.dto.ImportReport;
+import com.sisimpur.library.dto.ImportRowError;
+import com.sisimpur.library.index.AuthorIdSet;
+import com.sisimpur.library.index.AuthorNameTable;
+import com.sisimpur.library.index.AvailabilityCounters;
+import com.sisimpur.library.index.GenreDictionary;
+import com.sisimpur.library.index.TitleTrigramIndex;
+import com.sisimpur.library.repository.CatalogChangeLog;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.repository.SequenceIdAllocator;
+import com.sisimpur.library.util.CsvLineParser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Bulk loads books (and their authors) from CSV or NDJSON. The input is read and validated line by line,
+ * valid rows are written in JDBC batches with ids reserved up front from the pooled sequences, and every
+ * batch commits in its own transaction so one bad batch does not undo the rest of the file.
+ *
+ * Authors are matched by exact name, against the database and against authors created earlier in the
+ * same import; unknown names are created with the bio from their first row.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String INSERT_AUTHOR = "insert into authors (id, name, bio) values (?, ?, ?)";
+    private static final String INSERT_BOOK =
+            "insert into books (id, title, author_id, published_year, genre) values (?, ?, ?, ?, ?)";
+    private static final String SELECT_AUTHORS_BY_NAME =
+            "select min(id) as id, name from authors where name in (:names) group by name";
+
+    private static final List<String> COLUMNS = List.of("author_name", "author_bio", "title", "genre", "published_year");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final SequenceIdAllocator idAllocator;
+    private final ObjectMapper objectMapper;
+    private final ImportProperties importProperties;
+    private final TitleTrigramIndex titleIndex;
+    private final AuthorNameTable authorNameTable;
+    private final AuthorIdSet authorIdSet;
+    private final GenreDictionary genreDictionary;
+    private final FullTextSearchService fullTextSearchService;
+    private final CatalogChangeLog changeLog;
+    private final AvailabilityCounters availabilityCounters;
+
+    private record ImportRow(long line, String authorName, String authorBio, String title, String genre,
+                             int publishedYear) {
+    }
+
+    private record NewAuthor(Long id, String name) {
+    }
+
+    private record NewBook(Long id, String title, String genre) {
+    }
+
+    public ImportReport importBooks(InputStream input, Format format) {
+        long started = System.nanoTime();
+        Import state = new Import();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = null;
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && header == null) {
+                    header = readHeader(line);
+                    continue;
+                }
+
+                state.rowsRead++;
+                try {
+                    ImportRow row = format == Format.CSV ? parseCsv(lineNumber, line, header) : parseNdjson(lineNumber, line);
+                    state.add(row);
+                } catch (IllegalArgumentException e) {
+                    state.reject(lineNumber, e.getMessage());
+                }
+
+                if (state.pending.size() >= importProperties.batchSize()) {
+                    state.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        state.flush();
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        long rowsPerSecond = state.rowsInserted * 1000 / elapsedMs;
+        log.info("bulk import: read={} inserted={} rejected={} authors_created={} in {} ms ({} rows/s)",
+                state.rowsRead, state.rowsInserted, state.rowsRejected, state.authorsCreated, elapsedMs, rowsPerSecond);
+
+        return new ImportReport(state.rowsRead, state.rowsInserted, state.rowsRejected, state.authorsCreated,
+                elapsedMs, rowsPerSecond, state.batches);
+    }
+
+    private Map<String, Integer> readHeader(String line) {
+        List<String> names = CsvLineParser.parse(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : List.of("author_name", "title", "published_year")) {
+            if (!header.containsKey(column)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "CSV header must contain the columns " + COLUMNS + ", missing " + column + ".");
+            }
+        }
+        return header;
+    }
+
+    private ImportRow parseCsv(long lineNumber, String line, Map<String, Integer> header) {
+        List<String> fields = CsvLineParser.parse(line);
+        Map<String, String> values = new HashMap<>();
+        header.forEach((column, index) -> {
+            if (index < fields.size()) {
+                values.put(column, fields.get(index));
+            }
+        });
+        return validate(lineNumber, values.get("author_name"), values.get("author_bio"), values.get("title"),
+                values.get("genre"), values.get("published_year"));
+    }
+
+    private ImportRow parseNdjson(long lineNumber, String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON.");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Each line must be a JSON object.");
+        }
+        return validate(lineNumber, text(node, "author_name"), text(node, "author_bio"), text(node, "title"),
+                text(node, "genre"), text(node, "published_year"));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    // same limits as BookRequest and the table definitions
+    private static ImportRow validate(long lineNumber, String authorName, String authorBio, String title,
+                                      String genre, String publishedYear) {
+        if (title == null || title.isBlank()) {
+            throw new IllegalArgumentException("title cannot be empty");
+        }
+        if (title.length() > 255) {
+            throw new IllegalArgumentException("title cannot exceed 255 characters");
+        }
+        if (authorName == null || authorName.isBlank()) {
+            throw new IllegalArgumentException("author_name cannot be empty");
+        }
+        if (authorName.length() > 100) {
+            throw new IllegalArgumentException("author_name cannot exceed 100 characters");
+        }
+        if (genre != null && genre.length() > 100) {
+            throw new IllegalArgumentException("genre cannot exceed 100 characters");
+        }
+        if (genre != null && genre.isBlank()) {
+            genre = null;
+        }
+
+        int year;
+        try {
+            year = Integer.parseInt(publishedYear == null ? "" : publishedYear.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("published_year must be a whole number");
+        }
+        if (year < 0) {
+            throw new IllegalArgumentException("published_year must be greater than or equal to 0");
+        }
+
+        return new ImportRow(lineNumber, authorName.trim(), authorBio, title, genre, year);
+    }
+
+    // per-request state, so concurrent imports do not share anything but the sequences
+    private class Import {
+
+        private final List<ImportRow> pending = new ArrayList<>();
+        private final List<ImportRowError> pendingErrors = new ArrayList<>();
+        private final List<ImportBatchReport> batches = new ArrayList<>();
+        // author names already resolved by this import; only committed authors are remembered
+        private final Map<String, Long> authorIds = new HashMap<>();
+
+        private long firstLine = -1;
+        private long lastLine;
+        private long rowsRead;
+        private long rowsInserted;
+        private long rowsRejected;
+        private long authorsCreated;
+
+        void add(ImportRow row) {
+            track(row.line());
+            pending.add(row);
+        }
+
+        void reject(long line, String message) {
+            track(line);
+            pendingErrors.add(new ImportRowError(line, message));
+            rowsRejected++;
+        }
+
+        private void track(long line) {
+            if (firstLine < 0) {
+                firstLine = line;
+            }
+            lastLine = line;
+        }
+
+        void flush() {
+            if (pending.isEmpty() && pendingErrors.isEmpty()) {
+                return;
+            }
+            int batch = batches.size() + 1;
+            List<ImportRowError> errors = List.copyOf(pendingErrors);
+
+            if (pending.isEmpty()) {
+                batches.add(new ImportBatchReport(batch, firstLine, lastLine, 0, true, null, errors));
+            } else {
+                try {
+                    List<NewAuthor> newAuthors = new ArrayList<>();
+                    List<NewBook> newBooks = new ArrayList<>();
+                    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                    transaction.executeWithoutResult(status -> writeBatch(newAuthors, newBooks));
+
+                    // only touch the in-memory indexes once the rows are committed
+                    for (NewAuthor author : newAuthors) {
+                        authorIds.put(author.name(), author.id());
+                        authorNameTable.put(author.id(), author.name());
+                        authorIdSet.add(author.id());
+                    }
+                    for (NewBook book : newBooks) {
+                        titleIndex.put(book.id(), book.title());
+                        genreDictionary.add(book.genre());
+                    }
+                    indexFullText(batch, newBooks);
+
+                    rowsInserted += newBooks.size();
+                    authorsCreated += newAuthors.size();
+                    batches.add(new ImportBatchReport(batch, firstLine, lastLine, newBooks.size(), true, null, errors));
+                } catch (RuntimeException e) {
+                    log.warn("bulk import batch {} (lines {}-{}) rolled back", batch, firstLine, lastLine, e);
+                    rowsRejected += pending.size();
+                    batches.add(new ImportBatchReport(batch, firstLine, lastLine, 0, false,
+                            "Batch rolled back: " + rootMessage(e), errors));
+                }
+            }
+
+            pending.clear();
+            pendingErrors.clear();
+            firstLine = -1;
+        }
+
+        // the rows are committed either way; a missed batch is picked up by the next startup or reindex
+        private void indexFullText(int batch, List<NewBook> newBooks) {
+            try {
+                fullTextSearchService.indexBooks(newBooks.stream().map(NewBook::id).toList());
+            } catch (RuntimeException e) {
+                log.warn("bulk import batch {} committed but was not added to the full-text index", batch, e);
+            }
+        }
+
+        private void writeBatch(List<NewAuthor> newAuthors, List<NewBook> newBooks) {
+            Map<String, Long> batchAuthorIds = resolveAuthors(newAuthors);
+
+            List<Long> bookIds = idAllocator.allocate("books_id_seq", pending.size());
+            List<Object[]> bookRows = new ArrayList<>(pending.size());
+            List<AvailabilityCount> shelved = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                ImportRow row = pending.get(i);
+                Long bookId = bookIds.get(i);
+                Long authorId = batchAuthorIds.get(row.authorName());
+                bookRows.add(new Object[]{bookId, row.title(), authorId, row.publishedYear(), row.genre()});
+                newBooks.add(new NewBook(bookId, row.title(), row.genre()));
+                shelved.add(new AvailabilityCount(authorId, row.genre(), 1L, 1L));
+            }
+            jdbcTemplate.batchUpdate(INSERT_BOOK, bookRows,
+                    new int[]{Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.INTEGER, Types.VARCHAR});
+            changeLog.record(Entity.AUTHOR, newAuthors.stream().map(NewAuthor::id).toList(), Change.UPSERT);
+            changeLog.record(Entity.BOOK, bookIds, Change.UPSERT);
+            availabilityCounters.adjust(shelved);
+        }
+
+        private Map<String, Long> resolveAuthors(List<NewAuthor> newAuthors) {
+            Map<String, Long> resolved = new HashMap<>();
+            Map<String, String> unknown = new LinkedHashMap<>();
+            for (ImportRow row : pending) {
+                Long known = authorIds.get(row.authorName());
+                if (known != null) {
+                    resolved.put(row.authorName(), known);
+                } else {
+                    unknown.putIfAbsent(row.authorName(), row.authorBio());
+                }
+            }
+            if (unknown.isEmpty()) {
+                return resolved;
+            }
+
+            namedParameterJdbcTemplate.query(SELECT_AUTHORS_BY_NAME,
+                    new MapSqlParameterSource("names", unknown.keySet()),
+                    rs -> {
+                        String name = rs.getString("name");
+                        Long id = rs.getLong("id");
+                        resolved.put(name, id);
+                        authorIds.put(name, id);
+                        unknown.remove(name);
+                    });
+            if (unknown.isEmpty()) {
+                return resolved;
+            }
+
+            List<Long> ids = idAllocator.allocate("authors_id_seq", unknown.size());
+            List<Object[]> authorRows = new ArrayList<>(unknown.size());
+            int i = 0;
+            for (Map.Entry<String, String> author : unknown.entrySet()) {
+                Long id = ids.get(i++);
+                authorRows.add(new Object[]{id, author.getKey(), author.getValue()});
+                resolved.put(author.getKey(), id);
+                newAuthors.add(new NewAuthor(id, author.getKey()));
+            }
+            jdbcTemplate.batchUpdate(INSERT_AUTHOR, authorRows, new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR});
+            return resolved;
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
@@ -0,0 +1,152 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.dto.CatalogChange;
+import com.sisimpur.library.dto.ChangeFeedPage;
+import com.sisimpur.library.model.Author;
+import com.sisimpur.library.model.Book;
+import com.sisimpur.library.repository.AuthorRepository;
+import com.sisimpur.library.repository.BookRepository;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads the catalog change log for incremental sync. A page collapses repeated changes to the same book or
+ * author into the latest one and carries the current row, so a client applies each entry as an idempotent
+ * upsert or delete.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedService {
+
+    public static final String LATEST = "latest";
+
+    private static final String CURSOR_PREFIX = "chg:";
+
+    // rows of transactions that may still commit are left for a later page, see CatalogChangeLog
+    private static final String COMMITTED = "xid < pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private static final String CHANGES_AFTER =
+            "select xid, seq, entity_type, entity_id, change_type from catalog_changes " +
+            "where (xid, seq) > (?, ?) and " + COMMITTED + " order by xid, seq limit ?";
+
+    private static final String HEAD =
+            "select xid, seq from catalog_changes where " + COMMITTED + " order by xid desc, seq desc limit 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final KeysetPager keysetPager;
+
+    private record Position(long xid, long seq) {
+    }
+
+    private record Key(Entity entity, long id) {
+    }
+
+    private record Row(Position position, Key key, Change change) {
+    }
+
+    /**
+     * Changes after the cursor, oldest first. No cursor starts at the beginning of the log; "latest" returns
+     * no changes and a cursor at the current end, to take right before a full listing.
+     */
+    @Transactional(readOnly = true)
+    public ChangeFeedPage changesSince(String cursor, Integer limit) {
+        int pageSize = keysetPager.pageSize(limit);
+        if (LATEST.equals(cursor)) {
+            return new ChangeFeedPage(List.of(), encodeCursor(head()), false);
+        }
+        Position from = cursor == null || cursor.isBlank() ? new Position(0, 0) : decodeCursor(cursor);
+
+        List<Row> rows = jdbcTemplate.query(CHANGES_AFTER, (rs, rowNum) -> new Row(
+                new Position(rs.getLong("xid"), rs.getLong("seq")),
+                new Key(Entity.valueOf(rs.getString("entity_type")), rs.getLong("entity_id")),
+                Change.valueOf(rs.getString("change_type"))), from.xid(), from.seq(), pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        Position next = rows.isEmpty() ? from : rows.get(rows.size() - 1).position();
+
+        // one change per entity, kept at the position of its latest row. An upsert carries the current row,
+        // availability included, so a later availability change must not shrink it; only a delete replaces it
+        Map<Key, Change> latest = new LinkedHashMap<>();
+        for (Row row : rows) {
+            Change previous = latest.remove(row.key());
+            Change change = previous == Change.UPSERT && row.change() == Change.AVAILABILITY
+                    ? Change.UPSERT : row.change();
+            latest.put(row.key(), change);
+        }
+
+        Map<Long, Book> books = new HashMap<>();
+        bookRepository.findByIdIn(idsToLoad(latest, Entity.BOOK)).forEach(book -> books.put(book.getId(), book));
+        Map<Long, Author> authors = new HashMap<>();
+        authorRepository.findAllById(idsToLoad(latest, Entity.AUTHOR)).forEach(author -> authors.put(author.getId(), author));
+
+        List<CatalogChange> changes = new ArrayList<>(latest.size());
+        latest.forEach((key, change) -> changes.add(toChange(key, change, books, authors)));
+        return new ChangeFeedPage(changes, encodeCursor(next), hasMore);
+    }
+
+    private static List<Long> idsToLoad(Map<Key, Change> latest, Entity entity) {
+        List<Long> ids = new ArrayList<>();
+        latest.forEach((key, change) -> {
+            if (key.entity() == entity && change != Change.DELETE) {
+                ids.add(key.id());
+            }
+        });
+        return ids;
+    }
+
+    private static CatalogChange toChange(Key key, Change change, Map<Long, Book> books, Map<Long, Author> authors) {
+        String entity = key.entity().name().toLowerCase(Locale.ROOT);
+        Book book = key.entity() == Entity.BOOK ? books.get(key.id()) : null;
+        Author author = key.entity() == Entity.AUTHOR ? authors.get(key.id()) : null;
+
+        // a row that is gone by now was deleted in a later transaction; its tombstone can go out right away
+        if (change == Change.DELETE || (book == null && author == null)) {
+            return new CatalogChange(entity, key.id(), "delete", null, null, null);
+        }
+        if (change == Change.AVAILABILITY) {
+            return new CatalogChange(entity, key.id(), "availability", book.getUser() == null, null, null);
+        }
+        return new CatalogChange(entity, key.id(), "upsert", null, book, author);
+    }
+
+    private Position head() {
+        List<Position> head = jdbcTemplate.query(HEAD,
+                (rs, rowNum) -> new Position(rs.getLong("xid"), rs.getLong("seq")));
+        return head.isEmpty() ? new Position(0, 0) : head.get(0);
+    }
+
+    private static String encodeCursor(Position position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (CURSOR_PREFIX + position.xid() + ":" + position.seq()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException(decoded);
+            }
+            String[] parts = decoded.substring(CURSOR_PREFIX.length()).split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return new Position(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.config.CirculationProperties;
+import com.sisimpur.library.config.GroupCommitProperties;
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.index.AvailabilityCounters;
+import com.sisimpur.library.repository.CatalogChangeLog;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.repository.EntityCacheEvictor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Optional group commit for borrow and return requests. A single worker collects the requests that arrive
+ * within a short window, locks every book they touch in one statement, replays the requests in arrival order
+ * against the locked rows, and writes the net changes with one batched UPDATE in one transaction.
+ *
+ * Every request keeps its own all-or-nothing outcome: a request that fails leaves the shared state exactly as
+ * it found it. If the shared transaction itself fails, each request of the batch is retried on its own
+ * through CirculationService.
+ */
+@Slf4j
+@Service
+public class CirculationGroupCommitter {
+
+    private static final String LOCK_BOOKS =
+            "select id, user_id, author_id, genre from books where id in (:ids) order by id for update";
+    private static final String EXISTING_USERS = "select id from users where id in (:ids)";
+
+    // a changed copy either went back or changed hands, so its open loan ends either way
+    private static final String CLOSE_OPEN_LOANS =
+            "update loans set returned_at = now() where book_id in (:ids) and returned_at is null";
+    private static final String UPDATE_HOLDER = "update books set user_id = ?, updated_at = now() where id = ?";
+
+    private enum Kind { BORROW, RETURN }
+
+    private record PendingRequest(Kind kind, Long userId, List<Long> bookIds, long enqueuedAt,
+                                  CompletableFuture<Map<String, Object>> result, AtomicBoolean claimed) {
+
+        // whoever claims first decides the request: the worker applies it, a timed-out caller withdraws it
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    private final GroupCommitProperties properties;
+    private final CirculationProperties circulationProperties;
+    private final CirculationService circulationService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityCacheEvictor cacheEvictor;
+    private final CatalogChangeLog changeLog;
+    private final AvailabilityCounters availabilityCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingRequest> queue;
+    private final DistributionSummary batchSize;
+    private final Timer queueLatency;
+    private final Timer commitLatency;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public CirculationGroupCommitter(GroupCommitProperties properties, CirculationProperties circulationProperties,
+                                     CirculationService circulationService,
+                                     NamedParameterJdbcTemplate jdbcTemplate, EntityCacheEvictor cacheEvictor,
+                                     CatalogChangeLog changeLog, AvailabilityCounters availabilityCounters,
+                                     PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.circulationProperties = circulationProperties;
+        this.circulationService = circulationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheEvictor = cacheEvictor;
+        this.changeLog = changeLog;
+        this.availabilityCounters = availabilityCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.batchSize = DistributionSummary.builder("library.circulation.batch.size")
+                .description("Circulation requests committed per group-commit transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueLatency = Timer.builder("library.circulation.queue.latency")
+                .description("Time a circulation request waits before its batch starts")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("library.circulation.batch.duration")
+                .description("Time to lock, apply and commit one group-commit batch")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    public Map<String, Object> borrowBooks(Long userId, List<Long> bookIds) {
+        return submit(Kind.BORROW, userId, bookIds);
+    }
+
+    public Map<String, Object> returnBooks(Long userId, List<Long> bookIds) {
+        return submit(Kind.RETURN, userId, bookIds);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "circulation-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("circulation group commit enabled: window={} max_batch_size={}",
+                properties.window(), properties.maxBatchSize());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(5_000);
+        }
+    }
+
+    private Map<String, Object> submit(Kind kind, Long userId, List<Long> bookIds) {
+        PendingRequest request = new PendingRequest(kind, userId, List.copyOf(bookIds), System.nanoTime(),
+                new CompletableFuture<>(), new AtomicBoolean());
+        if (!running || !queue.offer(request)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Circulation queue is full, try again.");
+        }
+        long timeout = properties.requestTimeout().toNanos();
+        try {
+            try {
+                return request.result().get(timeout, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (request.claim()) {
+                    // never reached the database; the worker skips it
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Circulation queue is too slow, try again.");
+                }
+            }
+            // the worker already took it, so its batch is committing right now
+            try {
+                return request.result().get(timeout, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Timed out waiting for the circulation commit; check the loans before retrying.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting.");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void run() {
+        List<PendingRequest> batch = new ArrayList<>(properties.maxBatchSize());
+        try {
+            process(batch);
+        } finally {
+            // however the worker ends, nobody may be left waiting on it
+            running = false;
+            ResponseStatusException stopped =
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Circulation worker stopped.");
+            PendingRequest leftover;
+            while ((leftover = queue.poll()) != null) {
+                leftover.result().completeExceptionally(stopped);
+            }
+            batch.forEach(request -> request.result().completeExceptionally(stopped));
+        }
+    }
+
+    private void process(List<PendingRequest> batch) {
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + properties.window().toNanos();
+                while (batch.size() < properties.maxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                // errors included: the batch fails, the worker carries on with the next one
+                log.error("circulation group commit worker failed", e);
+                batch.forEach(request -> request.result().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<PendingRequest> batch) {
+        // callers that gave up while queued are dropped here, before anything is written
+        batch.removeIf(request -> !request.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        for (PendingRequest request : batch) {
+            queueLatency.record(started - request.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+
+        List<Map<String, Object>> results;
+        try {
+            results = transactionTemplate.execute(status -> apply(batch));
+        } catch (RuntimeException e) {
+            // one bad batch must not fail innocent requests; rerun each one in its own transaction
+            log.warn("circulation group commit of {} requests failed, retrying individually", batch.size(), e);
+            for (PendingRequest request : batch) {
+                completeIndividually(request);
+            }
+            return;
+        } finally {
+            commitLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        // callers only hear back once their changes are committed
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(results.get(i));
+        }
+    }
+
+    private void completeIndividually(PendingRequest request) {
+        try {
+            request.result().complete(request.kind() == Kind.BORROW
+                    ? circulationService.borrowBooks(request.userId(), request.bookIds())
+                    : circulationService.returnBooks(request.userId(), request.bookIds()));
+        } catch (RuntimeException e) {
+            request.result().completeExceptionally(e);
+        }
+    }
+
+    private List<Map<String, Object>> apply(List<PendingRequest> batch) {
+        Set<Long> bookIds = new TreeSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (PendingRequest request : batch) {
+            bookIds.addAll(request.bookIds());
+            userIds.add(request.userId());
+        }
+
+        // current holder of every touched book, locked in id order like the single-request path
+        Map<Long, Long> holders = new HashMap<>();
+        Map<Long, AvailabilityCount> shelves = new HashMap<>();
+        if (!bookIds.isEmpty()) {
+            jdbcTemplate.query(LOCK_BOOKS, new MapSqlParameterSource("ids", bookIds), rs -> {
+                long holder = rs.getLong("user_id");
+                holders.put(rs.getLong("id"), rs.wasNull() ? null : holder);
+                shelves.put(rs.getLong("id"), CirculationService.availabilityChange(rs, 0));
+            });
+        }
+        Map<Long, Long> initialHolders = new HashMap<>(holders);
+        Set<Long> existingUsers = new HashSet<>(
+                jdbcTemplate.queryForList(EXISTING_USERS, new MapSqlParameterSource("ids", userIds), Long.class));
+
+        Map<Long, Long> changed = new LinkedHashMap<>();
+        List<Map<String, Object>> results = new ArrayList<>(batch.size());
+        for (PendingRequest request : batch) {
+            if (!existingUsers.contains(request.userId())) {
+                results.add(failure("User not found."));
+            } else if (request.kind() == Kind.BORROW) {
+                results.add(borrow(request, holders, changed));
+            } else {
+                results.add(giveBack(request, holders, changed));
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(changed.size());
+            changed.forEach((bookId, holder) -> rows.add(new Object[]{holder, bookId}));
+            jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_HOLDER, rows, new int[]{Types.BIGINT, Types.BIGINT});
+
+            jdbcTemplate.update(CLOSE_OPEN_LOANS, new MapSqlParameterSource("ids", changed.keySet()));
+            Map<Long, Long> borrowers = new LinkedHashMap<>();
+            changed.forEach((bookId, holder) -> {
+                if (holder != null) {
+                    borrowers.put(bookId, holder);
+                }
+            });
+            CirculationService.openLoans(jdbcTemplate, borrowers, circulationProperties);
+            changeLog.record(Entity.BOOK, changed.keySet(), Change.AVAILABILITY);
+            availabilityCounters.adjust(availabilityChanges(changed, initialHolders, shelves));
+            cacheEvictor.evictBooks(changed.keySet());
+        }
+        return results;
+    }
+
+    // net effect of the batch per copy; one borrowed and given back within the batch is unchanged
+    private static List<AvailabilityCount> availabilityChanges(Map<Long, Long> changed, Map<Long, Long> initialHolders,
+                                                               Map<Long, AvailabilityCount> shelves) {
+        List<AvailabilityCount> changes = new ArrayList<>();
+        changed.forEach((bookId, holder) -> {
+            long delta = (holder == null ? 1 : 0) - (initialHolders.get(bookId) == null ? 1 : 0);
+            if (delta != 0) {
+                AvailabilityCount shelf = shelves.get(bookId);
+                changes.add(new AvailabilityCount(shelf.authorId(), shelf.genre(), 0L, delta));
+            }
+        });
+        return changes;
+    }
+
+    // same checks and messages as CirculationService.borrowBooks, against the locked rows
+    private static Map<String, Object> borrow(PendingRequest request, Map<Long, Long> holders, Map<Long, Long> changed) {
+        Set<Long> requested = new TreeSet<>(request.bookIds());
+        for (Long bookId : requested) {
+            if (!holders.containsKey(bookId)) {
+                return failure("Some books do not exist. Borrowing failed.");
+            }
+        }
+        for (Long bookId : requested) {
+            if (holders.get(bookId) != null) {
+                return failure("Some books are already borrowed. Borrowing failed.");
+            }
+        }
+
+        for (Long bookId : requested) {
+            holders.put(bookId, request.userId());
+            changed.put(bookId, request.userId());
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Books borrowed successfully.");
+        return response;
+    }
+
+    // same outcome as CirculationService.returnBooks, against the locked rows
+    private static Map<String, Object> giveBack(PendingRequest request, Map<Long, Long> holders, Map<Long, Long> changed) {
+        List<Long> returnedBooks = new ArrayList<>();
+        List<Long> invalidBooks = new ArrayList<>();
+        for (Long bookId : new TreeSet<>(request.bookIds())) {
+            if (request.userId().equals(holders.get(bookId))) {
+                returnedBooks.add(bookId);
+            } else {
+                invalidBooks.add(bookId);
+            }
+        }
+
+        if (returnedBooks.isEmpty()) {
+            return failure("No books were returned. Either they are not borrowed or invalid.");
+        }
+        for (Long bookId : returnedBooks) {
+            holders.put(bookId, null);
+            changed.put(bookId, null);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Books returned successfully.");
+        response.put("returned_books", returnedBooks);
+        response.put("invalid_books", invalidBooks);
+        return response;
+    }
+
+    private static Map<String, Object> failure(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return response;
+    }
+}
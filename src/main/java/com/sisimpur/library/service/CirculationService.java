@@ -1,15 +1,31 @@
 package com.sisimpur.library.service;
 
-import com.sisimpur.library.model.Author;
-import com.sisimpur.library.model.Book;
-import com.sisimpur.library.model.User;
+import com.sisimpur.library.config.CirculationProperties;
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.dto.LoanView;
+import com.sisimpur.library.dto.OverdueNotice;
+import com.sisimpur.library.index.AvailabilityCounters;
 import com.sisimpur.library.repository.BookRepository;
+import com.sisimpur.library.repository.CatalogChangeLog;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.repository.EntityCacheEvictor;
+import com.sisimpur.library.repository.LoanRepository;
 import com.sisimpur.library.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
 
 @Service
@@ -17,44 +33,84 @@ import java.util.*;
 
 public class CirculationService {
 
+    // borrows only the copies nobody holds; the row count tells whether every requested copy was free
+    private static final String BORROW_IF_AVAILABLE =
+            "UPDATE books SET user_id = :userId, updated_at = now() WHERE id IN (:bookIds) AND user_id IS NULL " +
+            "RETURNING author_id, genre";
+
+    // one open loan per borrowed copy; due_at is computed in the database so all clocks agree
+    private static final String OPEN_LOAN =
+            "INSERT INTO loans (book_id, user_id, due_at) VALUES (:bookId, :userId, now() + :loanSeconds * interval '1 second')";
+
+    // books.user_id decides what the user holds; rows are locked in id order, books before loans, like the
+    // group committer
+    private static final String RELEASE_BOOKS =
+            "UPDATE books SET user_id = NULL, updated_at = now() WHERE id IN (" +
+            "SELECT id FROM books WHERE id IN (:bookIds) AND user_id = :userId ORDER BY id FOR UPDATE) " +
+            "RETURNING id, author_id, genre";
+
+    // a copy borrowed before the loans table existed may have no open loan; then there is nothing to close
+    private static final String CLOSE_LOANS =
+            "UPDATE loans SET returned_at = now() WHERE book_id IN (:bookIds) AND returned_at IS NULL";
+
+    // next chunk of overdue loans after the keyset position, marked and joined with what the notice needs;
+    // loans locked by a concurrent return are skipped, they are being closed anyway
+    private static final String MARK_OVERDUE =
+            "WITH marked AS (UPDATE loans SET overdue_notified_at = now() WHERE id IN (" +
+            "SELECT id FROM loans WHERE id > :after AND returned_at IS NULL AND overdue_notified_at IS NULL " +
+            "AND due_at < now() ORDER BY id LIMIT :chunkSize FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, book_id, user_id, due_at) " +
+            "SELECT m.id, m.user_id, u.name, u.email, m.book_id, b.title, m.due_at FROM marked m " +
+            "JOIN users u ON u.id = m.user_id JOIN books b ON b.id = m.book_id ORDER BY m.id";
+
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
-
+    private final LoanRepository loanRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityCacheEvictor cacheEvictor;
+    private final CatalogChangeLog changeLog;
+    private final CirculationProperties circulationProperties;
+    private final KeysetPager keysetPager;
+    private final AvailabilityCounters availabilityCounters;
+
+    @Transactional
     public Map<String, Object> borrowBooks(Long userId, List<Long> bookIds) {
         Map<String, Object> response = new HashMap<>();
 
         //  if user exists
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             response.put("success", false);
             response.put("message", "User not found.");
             return response;
         }
 
-        // fetching books from database
-        List<Book> books = bookRepository.findAllById(bookIds);
+        // a single conditional update, so two requests can never both take the same copy;
+        // sorted ids keep the row lock order the same across concurrent requests
+        Set<Long> requested = new TreeSet<>(bookIds);
+        List<AvailabilityCount> borrowed = requested.isEmpty() ? List.of() : jdbcTemplate.query(BORROW_IF_AVAILABLE,
+                new MapSqlParameterSource("userId", userId).addValue("bookIds", requested),
+                (rs, rowNum) -> availabilityChange(rs, -1));
 
-        // if all requested books exist
-        if (books.size() != bookIds.size()) {
-            response.put("success", false);
-            response.put("message", "Some books do not exist. Borrowing failed.");
-            return response;
-        }
+        if (borrowed.size() != requested.size()) {
+            // all or nothing: undo the copies this request did get
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
 
-        // if any book is already borrowed
-        for (Book book : books) {
-            if (book.getUser() != null) {
-                response.put("success", false);
+            response.put("success", false);
+            if (bookRepository.countByIdIn(requested) != requested.size()) {
+                response.put("message", "Some books do not exist. Borrowing failed.");
+            } else {
                 response.put("message", "Some books are already borrowed. Borrowing failed.");
-                return response; // entire request is rejected
             }
+            return response;
         }
 
-        // If all books are available, we can borrow them
-        for (Book book : books) {
-            book.setUser(userOptional.get());
-        }
-        bookRepository.saveAll(books);
+        Map<Long, Long> borrowers = new LinkedHashMap<>();
+        requested.forEach(bookId -> borrowers.put(bookId, userId));
+        openLoans(jdbcTemplate, borrowers, circulationProperties);
+        changeLog.record(Entity.BOOK, requested, Change.AVAILABILITY);
+        availabilityCounters.adjust(borrowed);
+        // the update went around Hibernate, so drop the cached copies
+        cacheEvictor.evictBooks(requested);
 
         response.put("success", true);
         response.put("message", "Books borrowed successfully.");
@@ -62,29 +118,25 @@ public class CirculationService {
     }
 
 
+    @Transactional
     public Map<String, Object> returnBooks(Long userId, List<Long> bookIds) {
         Map<String, Object> response = new HashMap<>();
 
         //if user exists
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             response.put("success", false);
             response.put("message", "User not found.");
             return response;
         }
 
-        List<Book> books = bookRepository.findAllById(bookIds);
+        // the release itself says which copies the user held, so no book has to be loaded to compare owners
+        Set<Long> requested = new TreeSet<>(bookIds);
         List<Long> returnedBooks = new ArrayList<>();
-        List<Long> invalidBooks = new ArrayList<>();
-
-        for (Book book : books) {
-            if (book.getUser() != null && book.getUser().getId().equals(userId)) {
-                returnedBooks.add(book.getId());
-                book.setUser(null);
-            } else {
-                invalidBooks.add(book.getId());
-            }
-        }
+        List<AvailabilityCount> released = requested.isEmpty() ? List.of() : jdbcTemplate.query(RELEASE_BOOKS,
+                new MapSqlParameterSource("userId", userId).addValue("bookIds", requested), (rs, rowNum) -> {
+                    returnedBooks.add(rs.getLong("id"));
+                    return availabilityChange(rs, 1);
+                });
 
         if (returnedBooks.isEmpty()) {
             response.put("success", false);
@@ -92,8 +144,14 @@ public class CirculationService {
             return response;
         }
 
-        // saving the returned books
-        bookRepository.saveAll(books);
+        Collections.sort(returnedBooks);
+        List<Long> invalidBooks = new ArrayList<>(requested);
+        invalidBooks.removeAll(returnedBooks);
+
+        jdbcTemplate.update(CLOSE_LOANS, new MapSqlParameterSource("bookIds", returnedBooks));
+        changeLog.record(Entity.BOOK, returnedBooks, Change.AVAILABILITY);
+        availabilityCounters.adjust(released);
+        cacheEvictor.evictBooks(returnedBooks);
 
         response.put("success", true);
         response.put("message", "Books returned successfully.");
@@ -103,4 +161,46 @@ public class CirculationService {
         return response;
     }
 
+    // borrower by book id; also used by the group committer, inside its batch transaction
+    static void openLoans(NamedParameterJdbcTemplate jdbcTemplate, Map<Long, Long> borrowers,
+                          CirculationProperties properties) {
+        MapSqlParameterSource[] rows = borrowers.entrySet().stream()
+                .map(loan -> new MapSqlParameterSource("bookId", loan.getKey())
+                        .addValue("userId", loan.getValue())
+                        .addValue("loanSeconds", properties.loanPeriod().toSeconds()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(OPEN_LOAN, rows);
+    }
+
+    // one copy of the RETURNING author_id, genre row becoming available (+1) or borrowed (-1)
+    static AvailabilityCount availabilityChange(ResultSet rs, long delta) throws SQLException {
+        return new AvailabilityCount(rs.getLong("author_id"), rs.getString("genre"), 0L, delta);
+    }
+
+    /**
+     * Marks the next chunk of overdue loans after the given loan id as notified and returns their notices in
+     * id order. Runs in the caller's transaction, so the marks commit together with whatever the caller does
+     * with the notices.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OverdueNotice> markOverdue(long afterLoanId, int chunkSize) {
+        return jdbcTemplate.query(MARK_OVERDUE,
+                new MapSqlParameterSource("after", afterLoanId).addValue("chunkSize", chunkSize),
+                (rs, rowNum) -> new OverdueNotice(rs.getLong("id"), rs.getLong("user_id"), rs.getString("name"),
+                        rs.getString("email"), rs.getLong("book_id"), rs.getString("title"),
+                        rs.getTimestamp("due_at").toInstant()));
+    }
+
+    public CursorPage<LoanView> getUserLoans(Long userId, boolean openOnly, String cursor, Integer limit) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with ID: " + userId);
+        }
+        int pageSize = keysetPager.pageSize(limit);
+        long after = keysetPager.after(cursor);
+        List<LoanView> rows = openOnly
+                ? loanRepository.findOpenByUserAfter(userId, after, Limit.of(pageSize + 1))
+                : loanRepository.findByUserAfter(userId, after, Limit.of(pageSize + 1));
+        return keysetPager.page(rows, pageSize, LoanView::id);
+    }
+
 }
@@ -0,0 +1,176 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.dto.FullTextHit;
+import com.sisimpur.library.dto.FullTextPage;
+import com.sisimpur.library.model.Book;
+import com.sisimpur.library.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.search.engine.search.common.BooleanOperator;
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.hibernate.search.mapper.orm.work.SearchIndexingPlan;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Relevance-ranked search over book titles, author names and author biographies, backed by the embedded
+ * Lucene index Hibernate Search keeps under hibernate.search.backend.directory.root.
+ *
+ * Books saved or deleted through the EntityManager are reindexed automatically when their transaction
+ * commits. Writes Hibernate cannot see, or cannot follow back to the books, go through the methods here:
+ * author renames and bio edits, the database cascade on author delete, and the JDBC bulk import.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FullTextSearchService {
+
+    // deep pages cost a full top-(offset + size) collection in Lucene, so they are capped
+    private static final int MAX_OFFSET = 10_000;
+
+    private static final String[] HIGHLIGHT_FIELDS = {"title", "author.name", "author.bio"};
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final BookRepository bookRepository;
+    private final KeysetPager keysetPager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private CompletableFuture<?> massIndexing;
+
+    @Transactional(readOnly = true)
+    public FullTextPage search(String query, Integer page, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query cannot be empty.");
+        }
+        int pageNumber = page == null ? 0 : page;
+        if (pageNumber < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page cannot be negative.");
+        }
+        int pageSize = keysetPager.pageSize(size);
+        long offset = (long) pageNumber * pageSize;
+        if (offset > MAX_OFFSET) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page is too deep; refine the query instead.");
+        }
+
+        SearchSession session = Search.session(entityManager);
+        SearchResult<FullTextHit> result = session.search(Book.class)
+                .select(f -> f.composite()
+                        .from(f.entity(Book.class), f.score(), f.composite()
+                                .from(f.highlight("title"), f.highlight("author.name"), f.highlight("author.bio"))
+                                .asList())
+                        .as((book, score, fragments) -> toHit(book, score, fragments)))
+                .where(f -> f.simpleQueryString()
+                        .field("title").boost(2.0f)
+                        .field("author.name").boost(1.5f)
+                        .field("author.bio")
+                        .matching(query)
+                        .defaultOperator(BooleanOperator.AND))
+                .highlighter(f -> f.unified()
+                        .tag("<em>", "</em>")
+                        .fragmentSize(150)
+                        .numberOfFragments(3))
+                // the hits show the author's name, so it comes with the books rather than one select per hit
+                .loading(o -> o.graph(Book.WITH_AUTHOR, GraphSemantic.FETCH))
+                .fetch((int) offset, pageSize);
+
+        return new FullTextPage(result.total().hitCount(), pageNumber, pageSize, result.hits());
+    }
+
+    // e.g. the books of an edited author: its fields are embedded in each book document, but Author has no
+    // books collection for Hibernate Search to follow
+    @Transactional
+    public void indexBooks(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        SearchIndexingPlan plan = Search.session(entityManager).indexingPlan();
+        for (Book book : bookRepository.findAllById(bookIds)) {
+            plan.addOrUpdate(book);
+        }
+    }
+
+    // for rows the database already removed, e.g. through the cascade on author delete
+    @Transactional
+    public void purgeBooks(Collection<Long> bookIds) {
+        SearchIndexingPlan plan = Search.session(entityManager).indexingPlan();
+        for (Long bookId : bookIds) {
+            plan.purge(Book.class, bookId, null);
+        }
+    }
+
+    /**
+     * Drops the book index and rebuilds it from the database in the background. Returns false when a
+     * rebuild is already running.
+     */
+    public synchronized boolean startMassIndexing() {
+        if (isMassIndexing()) {
+            return false;
+        }
+        SearchMapping mapping = Search.mapping(entityManagerFactory);
+        massIndexing = mapping.scope(Book.class).massIndexer()
+                .purgeAllOnStart(true)
+                .typesToIndexInParallel(1)
+                .threadsToLoadObjects(4)
+                .batchSizeToLoadObjects(500)
+                .start()
+                .toCompletableFuture()
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        log.error("full-text mass indexing failed", failure);
+                    } else {
+                        log.info("full-text mass indexing finished");
+                    }
+                });
+        return true;
+    }
+
+    public synchronized boolean isMassIndexing() {
+        return massIndexing != null && !massIndexing.isDone();
+    }
+
+    // cold start: an empty or missing index directory, or one left behind by another database
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildIfOutOfSync() {
+        long indexed = Search.session(entityManager).search(Book.class)
+                .where(f -> f.matchAll())
+                .fetchTotalHitCount();
+        long stored = bookRepository.count();
+        if (indexed != stored) {
+            log.info("full-text index holds {} books, database holds {}; rebuilding", indexed, stored);
+            startMassIndexing();
+        }
+    }
+
+    private static FullTextHit toHit(Book book, float score, List<?> fragments) {
+        Map<String, List<String>> highlights = new LinkedHashMap<>();
+        for (int i = 0; i < HIGHLIGHT_FIELDS.length; i++) {
+            @SuppressWarnings("unchecked")
+            List<String> fieldFragments = (List<String>) fragments.get(i);
+            if (!fieldFragments.isEmpty()) {
+                highlights.put(HIGHLIGHT_FIELDS[i], fieldFragments);
+            }
+        }
+        return new FullTextHit(book.getId(), book.getTitle(), book.getGenre(), book.getPublishedYear(),
+                book.getAuthor().getId(), book.getAuthor().getName(), score, highlights);
+    }
+}
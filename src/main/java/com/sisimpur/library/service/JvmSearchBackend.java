@@ -0,0 +1,40 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.index.AuthorNameTable;
+import com.sisimpur.library.index.GenreDictionary;
+import com.sisimpur.library.index.Scored;
+import com.sisimpur.library.index.TitleTrigramIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// StringMatchingUtil scoring over the in-memory indexes, the default
+@Component
+@ConditionalOnProperty(name = "library.search.backend", havingValue = "jvm", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JvmSearchBackend implements SearchBackend {
+
+    private final TitleTrigramIndex titleIndex;
+    private final AuthorNameTable authorNameTable;
+    private final GenreDictionary genreDictionary;
+
+    @Override
+    public Scored<Long> matchTitles(String query) {
+        return titleIndex.search(query, BookService.SEARCH_TOLERANCE);
+    }
+
+    @Override
+    public Scored<Long> matchAuthors(String query) {
+        return authorNameTable.search(query, BookService.SEARCH_TOLERANCE);
+    }
+
+    @Override
+    public Scored<String> bestGenres(String query) {
+        return genreDictionary.bestMatches(query);
+    }
+
+    @Override
+    public boolean scoresInJvm() {
+        return true;
+    }
+}
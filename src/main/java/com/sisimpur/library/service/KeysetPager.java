@@ -0,0 +1,70 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.config.PaginationProperties;
+import com.sisimpur.library.dto.CursorPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page size and cursor handling for keyset pagination on ids. Services fetch one row more than the page size,
+ * and the extra row tells whether a next cursor is needed.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetPager {
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final PaginationProperties properties;
+
+    public int pageSize(Integer requested) {
+        if (requested == null) {
+            return properties.defaultPageSize();
+        }
+        if (requested < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be at least 1.");
+        }
+        return Math.min(requested, properties.maxPageSize());
+    }
+
+    // id after which the page starts, 0 for the first page
+    public long after(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        return decodeCursor(cursor);
+    }
+
+    public <T> CursorPage<T> page(List<T> rows, int pageSize, Function<T, Long> idOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new CursorPage<>(items, encodeCursor(idOf.apply(items.get(pageSize - 1))));
+    }
+
+    public String encodeCursor(long position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.sisimpur.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sisimpur.library.config.OverdueProperties;
+import com.sisimpur.library.dto.OverdueNotice;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scheduled overdue scan. Walks the open loans in id order, one transaction per chunk: CirculationService
+ * marks the chunk's overdue loans, their notices are appended to the run's NDJSON file and synced to disk, and
+ * the checkpoint row moves to the last loan id and the new end of the file, all before the commit.
+ *
+ * A crash can leave at most one uncommitted chunk at the tail of the file. The next run finds the unfinished
+ * checkpoint, cuts the file back to the committed offset and carries on after the committed loan id, so every
+ * notice lands in the file exactly once.
+ */
+@Slf4j
+@Service
+public class OverdueNoticeJob {
+
+    private static final String JOB = "overdue-notices";
+
+    private static final String LOAD_CHECKPOINT =
+            "SELECT output_file, last_id, file_offset, completed FROM job_checkpoints WHERE job = :job";
+
+    private static final String START_RUN =
+            "INSERT INTO job_checkpoints (job, output_file) VALUES (:job, :outputFile) " +
+            "ON CONFLICT (job) DO UPDATE SET output_file = excluded.output_file, last_id = 0, file_offset = 0, " +
+            "completed = false, updated_at = now()";
+
+    private static final String ADVANCE =
+            "UPDATE job_checkpoints SET last_id = :lastId, file_offset = :fileOffset, updated_at = now() WHERE job = :job";
+
+    private static final String COMPLETE =
+            "UPDATE job_checkpoints SET completed = true, updated_at = now() WHERE job = :job";
+
+    private static final DateTimeFormatter FILE_STAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final OverdueProperties properties;
+    private final CirculationService circulationService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Timer chunkLatency;
+    private final Counter rowsWritten;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile double lastRunRowsPerSecond;
+
+    private record Checkpoint(String outputFile, long lastId, long fileOffset, boolean completed) {
+    }
+
+    private record Chunk(int rows, long lastId, long fileOffset) {
+    }
+
+    public OverdueNoticeJob(OverdueProperties properties, CirculationService circulationService,
+                            NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.circulationService = circulationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkLatency = Timer.builder("library.overdue.chunk.duration")
+                .description("Time to mark, write, sync and commit one chunk of overdue loans")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rowsWritten = Counter.builder("library.overdue.rows")
+                .description("Overdue loans marked and written to a notice file")
+                .register(meterRegistry);
+        Gauge.builder("library.overdue.rows.per.second", this, job -> job.lastRunRowsPerSecond)
+                .description("Throughput of the last finished overdue scan")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${library.circulation.overdue.cron:0 0 2 * * *}")
+    public void runScheduled() {
+        run();
+    }
+
+    /**
+     * Scans to the end of the loans, resuming an unfinished run first. Returns the number of notices written,
+     * or -1 when a run is already going.
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("overdue scan already running, skipping");
+            return -1;
+        }
+        try {
+            return scan();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long scan() throws IOException {
+        Checkpoint checkpoint = loadCheckpoint();
+        if (checkpoint == null || checkpoint.completed()) {
+            checkpoint = startRun();
+        } else {
+            log.info("resuming overdue scan in {} after loan {}", checkpoint.outputFile(), checkpoint.lastId());
+        }
+
+        Files.createDirectories(properties.outputDir());
+        Path file = properties.outputDir().resolve(checkpoint.outputFile());
+        long started = System.nanoTime();
+        long rows = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // anything past the committed offset was written by a chunk that never committed
+            channel.truncate(checkpoint.fileOffset());
+
+            Chunk chunk = new Chunk(0, checkpoint.lastId(), checkpoint.fileOffset());
+            do {
+                Chunk from = chunk;
+                long chunkStarted = System.nanoTime();
+                chunk = transactionTemplate.execute(status -> writeChunk(channel, from));
+                chunkLatency.record(System.nanoTime() - chunkStarted, TimeUnit.NANOSECONDS);
+                rows += chunk.rows();
+            } while (chunk.rows() > 0);
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - started);
+        lastRunRowsPerSecond = rows * 1e9 / elapsedNanos;
+        log.info("overdue scan wrote {} notices to {} in {} ms ({} rows/s)", rows, file,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(lastRunRowsPerSecond));
+        return rows;
+    }
+
+    private Chunk writeChunk(FileChannel channel, Chunk from) {
+        MapSqlParameterSource job = new MapSqlParameterSource("job", JOB);
+        List<OverdueNotice> notices = circulationService.markOverdue(from.lastId(), properties.chunkSize());
+        if (notices.isEmpty()) {
+            jdbcTemplate.update(COMPLETE, job);
+            return new Chunk(0, from.lastId(), from.fileOffset());
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(encode(notices));
+            long offset = from.fileOffset();
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+            // the notices must be on disk before the marks that say they were sent can commit
+            channel.force(false);
+
+            long lastId = notices.get(notices.size() - 1).loanId();
+            jdbcTemplate.update(ADVANCE, job.addValue("lastId", lastId).addValue("fileOffset", offset));
+            rowsWritten.increment(notices.size());
+            return new Chunk(notices.size(), lastId, offset);
+        } catch (IOException e) {
+            // rolls the marks back; the next run cuts the file back to the checkpoint
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] encode(List<OverdueNotice> notices) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(notices.size() * 256);
+        for (OverdueNotice notice : notices) {
+            out.write(objectMapper.writeValueAsBytes(notice));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private Checkpoint loadCheckpoint() {
+        List<Checkpoint> rows = jdbcTemplate.query(LOAD_CHECKPOINT, new MapSqlParameterSource("job", JOB),
+                (rs, rowNum) -> new Checkpoint(rs.getString("output_file"), rs.getLong("last_id"),
+                        rs.getLong("file_offset"), rs.getBoolean("completed")));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private Checkpoint startRun() {
+        String outputFile = "overdue-" + FILE_STAMP.format(Instant.now()) + ".ndjson";
+        jdbcTemplate.update(START_RUN, new MapSqlParameterSource("job", JOB).addValue("outputFile", outputFile));
+        return new Checkpoint(outputFile, 0, 0, false);
+    }
+}
@@ -0,0 +1,92 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.config.SearchProperties;
+import com.sisimpur.library.index.GenreDictionary;
+import com.sisimpur.library.index.Scored;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Fuzzy matching inside PostgreSQL with pg_trgm, so no titles or names travel to the JVM.
+ *
+ * The JVM score is half "the query is a substring" and half edit-distance similarity. Here the substring half
+ * becomes a case-insensitive ILIKE and the similarity half becomes trigram similarity above
+ * library.search.similarity-threshold; both are answered by the GIN trigram indexes in db/init.sql.
+ * The threshold is calibrated against the JVM backend by SearchBackendCalibrationTest. Genres are few and
+ * already in memory, so they are resolved through GenreDictionary exactly as the JVM backend does.
+ */
+@Component
+@ConditionalOnProperty(name = "library.search.backend", havingValue = "postgres")
+public class PostgresSearchBackend implements SearchBackend {
+
+    // the % operator compares against this setting; set_config(..., true) scopes it to the transaction
+    private static final String SET_THRESHOLD = "select set_config('pg_trgm.similarity_threshold', :threshold, true)";
+
+    private static final String MATCH_TITLES =
+            "select id from books where title ilike :pattern or title % :query order by id";
+
+    private static final String MATCH_AUTHORS =
+            "select id from authors where name ilike :pattern or name % :query order by id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final String similarityThreshold;
+    private final GenreDictionary genreDictionary;
+
+    public PostgresSearchBackend(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 SearchProperties properties, GenreDictionary genreDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.genreDictionary = genreDictionary;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.similarityThreshold = Double.toString(properties.similarityThreshold());
+    }
+
+    // titles and authors are scored in the database, so nothing is reported as scanned in the JVM
+    @Override
+    public Scored<Long> matchTitles(String query) {
+        return new Scored<>(withThreshold(
+                () -> jdbcTemplate.queryForList(MATCH_TITLES, parameters(query), Long.class)), 0);
+    }
+
+    @Override
+    public Scored<Long> matchAuthors(String query) {
+        return new Scored<>(withThreshold(
+                () -> jdbcTemplate.queryForList(MATCH_AUTHORS, parameters(query), Long.class)), 0);
+    }
+
+    @Override
+    public Scored<String> bestGenres(String query) {
+        return genreDictionary.bestMatches(query);
+    }
+
+    @Override
+    public boolean scoresInJvm() {
+        return false;
+    }
+
+    private <T> T withThreshold(Supplier<T> query) {
+        return readOnlyTransaction.execute(status -> {
+            jdbcTemplate.queryForObject(SET_THRESHOLD, new MapSqlParameterSource("threshold", similarityThreshold),
+                    String.class);
+            return query.get();
+        });
+    }
+
+    private static MapSqlParameterSource parameters(String query) {
+        String trimmed = query.trim();
+        return new MapSqlParameterSource("query", trimmed)
+                .addValue("pattern", "%" + escapeLike(trimmed) + "%");
+    }
+
+    // ILIKE treats % and _ as wildcards and \ as the escape character
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
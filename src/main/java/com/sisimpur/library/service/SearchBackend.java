@@ -0,0 +1,22 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.index.Scored;
+
+/**
+ * Resolves the fuzzy search criteria to ids or genre values; BookService fetches and filters the books.
+ * Selected with library.search.backend. Each result carries how many entries were scored in the JVM to get it.
+ */
+public interface SearchBackend {
+
+    // ids (ascending) of books whose title matches
+    Scored<Long> matchTitles(String query);
+
+    // ids (ascending) of authors whose name matches
+    Scored<Long> matchAuthors(String query);
+
+    // the distinct genres sharing the best score for the query
+    Scored<String> bestGenres(String query);
+
+    // true when titles can also be scored row by row in the JVM with the same result
+    boolean scoresInJvm();
+}
@@ -0,0 +1,75 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.index.Scored;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the search path, tagged by criterion (title, author, genre, year, available, filter):
+ * end-to-end search time, time spent scoring strings in memory, and how many entries the scoring looked at
+ * compared to how many it kept.
+ */
+@Component
+public class SearchMetrics {
+
+    private record Meters(Timer search, Timer scoring, Counter scanned, Counter matched) {
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, Meters> metersByCriterion = new ConcurrentHashMap<>();
+
+    public SearchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T timeSearch(String criterion, Supplier<T> search) {
+        return meters(criterion).search().record(search);
+    }
+
+    // times an in-memory scoring pass and counts the entries it scored and the ones it kept
+    public <T> List<T> timeScoring(String criterion, Supplier<Scored<T>> scoring) {
+        Meters meters = meters(criterion);
+        Scored<T> result = meters.scoring().record(scoring);
+        meters.scanned().increment(result.scanned());
+        meters.matched().increment(result.matches().size());
+        return result.matches();
+    }
+
+    // for scoring that is interleaved with fetching rows, measured by the caller
+    public void recordScoring(String criterion, long scanned, long matched, long scoringNanos) {
+        Meters meters = meters(criterion);
+        meters.scoring().record(scoringNanos, TimeUnit.NANOSECONDS);
+        meters.scanned().increment(scanned);
+        meters.matched().increment(matched);
+    }
+
+    private Meters meters(String criterion) {
+        return metersByCriterion.computeIfAbsent(criterion, key -> new Meters(
+                Timer.builder("library.search.duration")
+                        .description("End-to-end time of a book search")
+                        .tag("criterion", key)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                Timer.builder("library.search.scoring.duration")
+                        .description("Time spent scoring strings in memory for one search")
+                        .tag("criterion", key)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                Counter.builder("library.search.rows.scanned")
+                        .description("Entries considered by in-memory scoring")
+                        .tag("criterion", key)
+                        .register(registry),
+                Counter.builder("library.search.rows.matched")
+                        .description("Entries that scored above the tolerance")
+                        .tag("criterion", key)
+                        .register(registry)));
+    }
+}
@@ -1,10 +1,20 @@
 package com.sisimpur.library.service;
 
+import com.sisimpur.library.dto.AvailabilityCount;
+import com.sisimpur.library.dto.CursorPage;
+import com.sisimpur.library.index.AvailabilityCounters;
 import com.sisimpur.library.model.User;
+import com.sisimpur.library.repository.BookRepository;
+import com.sisimpur.library.repository.CatalogChangeLog;
+import com.sisimpur.library.repository.CatalogChangeLog.Change;
+import com.sisimpur.library.repository.CatalogChangeLog.Entity;
+import com.sisimpur.library.repository.EntityCacheEvictor;
 import com.sisimpur.library.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -15,12 +25,20 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final KeysetPager keysetPager;
+    private final BookRepository bookRepository;
+    private final EntityCacheEvictor cacheEvictor;
+    private final CatalogChangeLog changeLog;
+    private final AvailabilityCounters availabilityCounters;
+
     public User getUser(Long id) {
         return userRepository.findById(id).orElse(null);
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public CursorPage<User> getUsersPage(String cursor, Integer limit) {
+        int pageSize = keysetPager.pageSize(limit);
+        List<User> rows = userRepository.findByIdGreaterThanOrderByIdAsc(keysetPager.after(cursor), Limit.of(pageSize + 1));
+        return keysetPager.page(rows, pageSize, User::getId);
     }
 
     public User createUser(User user) {
@@ -42,6 +60,7 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    @Transactional
     public User updateUser(Long id, User updatedUser) {
         // Find existing user
         User existingUser = userRepository.findById(id)
@@ -67,9 +86,13 @@ public class UserService {
             }
         }
 
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        // borrowed books embed their holder, so their representation changed too
+        changeLog.record(Entity.BOOK, bookRepository.findIdsByUserId(id), Change.UPSERT);
+        return savedUser;
     }
 
+    @Transactional
     public void deleteUser(Long id) {
 
         Optional<User> existingUser = userRepository.findById(id);
@@ -78,6 +101,12 @@ public class UserService {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,"User not found with ID "+id);
 
         }
+        // the schema sets user_id to null on the borrowed books, so their cached copies are stale afterwards
+        List<Long> borrowedBookIds = bookRepository.findIdsByUserId(id);
+        List<AvailabilityCount> released = bookRepository.countReleasedByUserId(id);
         userRepository.deleteById(id);
+        changeLog.record(Entity.BOOK, borrowedBookIds, Change.AVAILABILITY);
+        availabilityCounters.adjust(released);
+        cacheEvictor.evictBooks(borrowedBookIds);
     }
 }
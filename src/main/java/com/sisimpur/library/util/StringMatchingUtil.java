@@ -2,35 +2,110 @@ package com.sisimpur.library.util;
 
 public class StringMatchingUtil {
 
+    // returned by scoreIfAbove when the score cannot exceed the requested threshold
+    public static final double NO_MATCH = -1.0;
+
+    // Myers/Hyyrö bit-parallel edit distance handles patterns up to one machine word
+    private static final int WORD_SIZE = 64;
+
+    // per-thread scratch space, so scoring a row does not allocate
+    private static final ThreadLocal<long[]> ASCII_PEQ = ThreadLocal.withInitial(() -> new long[128]);
+    private static final ThreadLocal<int[][]> BAND_ROWS = ThreadLocal.withInitial(() -> new int[2][0]);
+
     // Combine substring match and edit distance into a final score
     public static double calculateCombinedScore(String query, String target) {
         // Clean the strings by removing non-alphabetic characters and trimming spaces
         String cleanedQuery = cleanString(query);
         String cleanedTarget = cleanString(target);
 
-        System.out.println("query "+cleanedQuery+" target: "+cleanedTarget);
-
         // Substring score: check if cleaned query is a substring of cleaned target
         double substringScore = getSubstringScore(cleanedQuery, cleanedTarget);
 
-        System.out.println("substring score: "+substringScore);
         // Edit distance score
         double editDistanceScore = getEditDistanceScore(query, target);
 
-        System.out.println("editDistance score "+editDistanceScore);
-
         // Combined score: an weighted average of substring score and edit distance score
         //substring is given more priority as it is semantically more meaningful
-        double score = 0.5*substringScore + 0.5*editDistanceScore ;
-        System.out.println("final score "+score);
-        return score;
+        return 0.5*substringScore + 0.5*editDistanceScore ;
+    }
+
+    // Same as calculateCombinedScore(query, target) > tolerance, but gives up as soon as the tolerance is out of reach
+    public static boolean isMatch(String query, String target, double tolerance) {
+        return scoreIfAbove(query, target, tolerance, false) != NO_MATCH;
+    }
+
+    // Returns the combined score if it is above the threshold, NO_MATCH otherwise
+    public static double scoreIfAbove(String query, String target, double threshold) {
+        return scoreIfAbove(query, target, threshold, true);
+    }
+
+    private static double scoreIfAbove(String query, String target, double threshold, boolean needScore) {
+        double substringScore = getSubstringScore(cleanString(query), cleanString(target));
+
+        int maxLength = Math.max(query.length(), target.length());
+        if (maxLength == 0) {
+            double score = 0.5 * substringScore;
+            return score > threshold ? score : NO_MATCH;
+        }
+
+        int maxDistance = maxDistanceAbove(substringScore, maxLength, threshold);
+        if (maxDistance < 0) {
+            return NO_MATCH;
+        }
+        if (maxDistance >= maxLength && !needScore) {
+            // the distance never exceeds the longer length, so even the worst case is above the threshold
+            return combine(substringScore, maxLength, maxLength);
+        }
+
+        int distance = editDistance(query, target, maxDistance);
+        return distance > maxDistance ? NO_MATCH : combine(substringScore, distance, maxLength);
     }
 
-    private static String cleanString(String input) {
+    // largest edit distance that still scores above the threshold, or -1 if none does
+    private static int maxDistanceAbove(double substringScore, int maxLength, double threshold) {
+        int distance = (int) Math.ceil((1.0 + substringScore - 2 * threshold) * maxLength) - 1;
+        distance = Math.max(-1, Math.min(maxLength, distance));
+
+        // settle rounding at the boundary against the exact expression used for scoring
+        while (distance < maxLength && combine(substringScore, distance + 1, maxLength) > threshold) {
+            distance++;
+        }
+        while (distance >= 0 && !(combine(substringScore, distance, maxLength) > threshold)) {
+            distance--;
+        }
+        return distance;
+    }
 
-        input = input.trim();
-        input = input.replaceAll("[^a-zA-Z0-9]", "");
-        return input.toLowerCase();
+    private static double combine(double substringScore, int distance, int maxLength) {
+        return 0.5 * substringScore + 0.5 * (1.0 - (double) distance / maxLength);
+    }
+
+    // keeps ASCII letters and digits, lowercased; equivalent to trim + replaceAll("[^a-zA-Z0-9]", "") + toLowerCase
+    public static String cleanString(String input) {
+        int length = input.length();
+        char[] cleaned = null;
+        int size = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            boolean lowerOrDigit = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+
+            if (cleaned == null) {
+                if (lowerOrDigit) {
+                    continue;
+                }
+                // first change: copy the untouched prefix and switch to building a new string
+                cleaned = new char[length];
+                input.getChars(0, i, cleaned, 0);
+                size = i;
+            }
+            if (lowerOrDigit) {
+                cleaned[size++] = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                cleaned[size++] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return cleaned == null ? input : new String(cleaned, 0, size);
     }
 
 
@@ -40,31 +115,135 @@ public class StringMatchingUtil {
     }
 
     private static double getEditDistanceScore(String query, String target) {
-        int distance = editDistance(query, target);
         int maxLength = Math.max(query.length(), target.length());
+        int distance = editDistance(query, target, maxLength);
         return maxLength == 0 ? 0.0 : 1.0 - (double) distance / maxLength;
     }
 
-    private static int editDistance(String str1, String str2) {
-        int m = str1.length();
-        int n = str2.length();
-        int[][] dp = new int[m + 1][n + 1];
-
-        for (int i = 0; i <= m; i++) {
-            for (int j = 0; j <= n; j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else {
-                    dp[i][j] = Math.min(Math.min(dp[i - 1][j - 1] + (str1.charAt(i - 1) == str2.charAt(j - 1) ? 0 : 1),
-                                    dp[i - 1][j] + 1),
-                            dp[i][j - 1] + 1);
+    // Levenshtein distance if it is at most maxDistance, otherwise some value greater than maxDistance
+    public static int editDistance(String str1, String str2, int maxDistance) {
+        String pattern = str1.length() <= str2.length() ? str1 : str2;
+        String text = pattern == str1 ? str2 : str1;
+
+        if (text.length() - pattern.length() > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (pattern.isEmpty()) {
+            return text.length();
+        }
+        if (pattern.length() <= WORD_SIZE) {
+            return bitParallelDistance(pattern, text, maxDistance);
+        }
+        return bandedDistance(pattern, text, maxDistance);
+    }
+
+    private static int bitParallelDistance(String pattern, String text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+        long[] peq = ASCII_PEQ.get();
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < 128) {
+                peq[c] |= 1L << i;
+            }
+        }
+
+        try {
+            long pv = -1L;
+            long mv = 0L;
+            long lastBit = 1L << (m - 1);
+            int distance = m;
+
+            for (int j = 0; j < n; j++) {
+                char c = text.charAt(j);
+                long eq = c < 128 ? peq[c] : nonAsciiMatchMask(pattern, c);
+
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                if ((ph & lastBit) != 0) {
+                    distance++;
+                } else if ((mh & lastBit) != 0) {
+                    distance--;
+                }
+
+                // the first row of the matrix grows by one per column, hence the carried-in bit
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+
+                // each remaining column can lower the distance by at most one
+                if (distance - (n - j - 1) > maxDistance) {
+                    return maxDistance + 1;
+                }
+            }
+            return distance;
+        } finally {
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(i);
+                if (c < 128) {
+                    peq[c] = 0L;
                 }
             }
         }
-        return dp[m][n];
     }
 
-}
+    private static long nonAsciiMatchMask(String pattern, char c) {
+        long mask = 0L;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == c) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    // Ukkonen's band: only cells with |i - j| <= maxDistance can lead to a distance within the bound
+    private static int bandedDistance(String pattern, String text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+        int outOfBand = maxDistance + 1;
 
+        int[][] rows = BAND_ROWS.get();
+        if (rows[0].length < n + 2) {
+            rows[0] = new int[n + 2];
+            rows[1] = new int[n + 2];
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+
+        for (int j = 0; j <= n; j++) {
+            previous[j] = Math.min(j, outOfBand);
+        }
+        previous[n + 1] = outOfBand;
+
+        for (int i = 1; i <= m; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(n, i + maxDistance);
+            char c = pattern.charAt(i - 1);
+
+            current[from - 1] = from == 1 ? Math.min(i, outOfBand) : outOfBand;
+            int rowMin = current[from - 1];
+            for (int j = from; j <= to; j++) {
+                int substitution = previous[j - 1] + (c == text.charAt(j - 1) ? 0 : 1);
+                int value = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(value, outOfBand);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            current[to + 1] = outOfBand;
+
+            if (rowMin > maxDistance) {
+                return outOfBand;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+}
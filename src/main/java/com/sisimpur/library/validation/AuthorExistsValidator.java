@@ -1,5 +1,6 @@
 package com.sisimpur.library.validation;
 
+import com.sisimpur.library.index.AuthorIdSet;
 import com.sisimpur.library.repository.AuthorRepository;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
@@ -12,11 +13,22 @@ public class AuthorExistsValidator implements ConstraintValidator<AuthorExists,
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private AuthorIdSet authorIdSet;
+
     @Override
     public boolean isValid(Integer authorId, ConstraintValidatorContext context) {
         if (authorId == null) {
             return false; // handle null here if not using @NotNull
         }
-        return authorRepository.existsById(authorId.longValue());
+        if (authorIdSet.contains(authorId.longValue())) {
+            return true;
+        }
+        // not in memory: only then ask the database, in case the author was added outside this instance
+        boolean exists = authorRepository.existsById(authorId.longValue());
+        if (exists) {
+            authorIdSet.add(authorId.longValue());
+        }
+        return exists;
     }
 }
@@ -0,0 +1,146 @@
+package com.sisimpur.library.load;
+
+import com.sisimpur.library.service.BulkImportService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mixed workload: most clients fire slow fuzzy searches while the rest fetch single books by id. What we
+ * watch is the p99 of the fast endpoint, which suffers when slow requests hold every worker thread.
+ * Subclasses pick the thread model; run both with ./gradlew loadTest and compare the printed summaries.
+ */
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// every client shares one address, so admission control would shed the very load being measured; both thread
+// models get the same fully warmed pool, so only the thread model differs between the runs
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "library.admission.enabled=false",
+        "spring.datasource.hikari.minimum-idle=${spring.datasource.hikari.maximum-pool-size}"})
+abstract class MixedWorkloadLoadTest {
+
+    private static final int CATALOG_SIZE = 20_000;
+    private static final int SEARCH_CLIENTS = 300;
+    private static final int LOOKUP_CLIENTS = 100;
+    private static final Duration RUN_TIME = Duration.ofSeconds(30);
+    private static final String AUTHOR_PREFIX = "load-test-";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> bookIds;
+
+    @BeforeAll
+    void seedCatalog() {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            rows.append("{\"author_name\":\"").append(AUTHOR_PREFIX).append(i / 20)
+                    .append("\",\"title\":\"Load test volume ").append(i)
+                    .append("\",\"genre\":\"Genre ").append(i % 40)
+                    .append("\",\"published_year\":").append(1900 + i % 120)
+                    .append("}\n");
+        }
+        bulkImportService.importBooks(new ByteArrayInputStream(rows.toString().getBytes(StandardCharsets.UTF_8)),
+                BulkImportService.Format.NDJSON);
+        bookIds = jdbcTemplate.queryForList(
+                "select b.id from books b join authors a on a.id = b.author_id where a.name like ?",
+                Long.class, AUTHOR_PREFIX + "%");
+    }
+
+    @AfterAll
+    void removeCatalog() {
+        jdbcTemplate.update("delete from authors where name like ?", AUTHOR_PREFIX + "%");
+    }
+
+    protected abstract String threadModel();
+
+    @Test
+    void mixedWorkload() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Queue<Long> searchLatencies = new ConcurrentLinkedQueue<>();
+        Queue<Long> lookupLatencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger failures = new AtomicInteger();
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SEARCH_CLIENTS; i++) {
+                clients.submit(() -> drive(client, deadline, searchLatencies, failures, random ->
+                        "/api/v1/books/search?title=volume%20" + random.nextInt(CATALOG_SIZE) + "&limit=50"));
+            }
+            for (int i = 0; i < LOOKUP_CLIENTS; i++) {
+                clients.submit(() -> drive(client, deadline, lookupLatencies, failures, random ->
+                        "/api/v1/books/" + bookIds.get(random.nextInt(bookIds.size()))));
+            }
+        }
+
+        System.out.printf("[%s] search  %s%n", threadModel(), summary(searchLatencies));
+        System.out.printf("[%s] by id   %s%n", threadModel(), summary(lookupLatencies));
+        assertEquals(0, failures.get(), "failed requests");
+    }
+
+    private interface PathSupplier {
+        String next(ThreadLocalRandom random);
+    }
+
+    private Void drive(HttpClient client, long deadline, Queue<Long> latencies, AtomicInteger failures,
+                       PathSupplier paths) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + paths.next(random)))
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 500) {
+                    failures.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failures.incrementAndGet();
+            }
+            latencies.add(System.nanoTime() - started);
+        }
+        return null;
+    }
+
+    private static String summary(Queue<Long> latencies) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            return "no requests";
+        }
+        return String.format("requests=%d p50=%.1f ms p99=%.1f ms max=%.1f ms", sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,13 @@
+package com.sisimpur.library.load;
+
+import org.springframework.test.context.ActiveProfiles;
+
+// default Tomcat worker pool and Hikari settings
+@ActiveProfiles("dev")
+class PlatformThreadsLoadTest extends MixedWorkloadLoadTest {
+
+    @Override
+    protected String threadModel() {
+        return "platform threads";
+    }
+}
@@ -0,0 +1,13 @@
+package com.sisimpur.library.load;
+
+import org.springframework.test.context.ActiveProfiles;
+
+// virtual-thread request handling with permit-bounded connection checkout
+@ActiveProfiles("vthreads")
+class VirtualThreadsLoadTest extends MixedWorkloadLoadTest {
+
+    @Override
+    protected String threadModel() {
+        return "virtual threads";
+    }
+}
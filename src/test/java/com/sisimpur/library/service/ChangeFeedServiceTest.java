@@ -0,0 +1,89 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.config.PaginationProperties;
+import com.sisimpur.library.dto.CatalogChange;
+import com.sisimpur.library.dto.ChangeFeedPage;
+import com.sisimpur.library.model.Book;
+import com.sisimpur.library.repository.AuthorRepository;
+import com.sisimpur.library.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// how a page collapses several changes to the same entity
+class ChangeFeedServiceTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final AuthorRepository authorRepository = mock(AuthorRepository.class);
+
+    @Test
+    void upsertFollowedByAvailabilityStillSendsTheBook() {
+        Book book = new Book();
+        book.setId(7L);
+        book.setTitle("Padma Nadir Majhi");
+        book.setGenre("Novel");
+        when(bookRepository.findByIdIn(any())).thenReturn(List.of(book));
+
+        ChangeFeedPage page = service(List.of(
+                new String[]{"BOOK", "7", "UPSERT"},
+                new String[]{"BOOK", "7", "AVAILABILITY"})).changesSince(null, 10);
+
+        assertEquals(1, page.changes().size());
+        CatalogChange change = page.changes().get(0);
+        assertEquals("upsert", change.change());
+        assertSame(book, change.book());
+    }
+
+    @Test
+    void deleteOverridesAnEarlierUpsert() {
+        when(bookRepository.findByIdIn(any())).thenReturn(List.of());
+
+        ChangeFeedPage page = service(List.of(
+                new String[]{"BOOK", "7", "UPSERT"},
+                new String[]{"BOOK", "7", "DELETE"})).changesSince(null, 10);
+
+        assertEquals(1, page.changes().size());
+        assertEquals("delete", page.changes().get(0).change());
+        assertNull(page.changes().get(0).book());
+    }
+
+    // a change feed over the given (entity_type, entity_id, change_type) rows, in log order
+    private ChangeFeedService service(List<String[]> log) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                List<T> rows = new ArrayList<>();
+                try {
+                    for (int i = 0; i < log.size(); i++) {
+                        rows.add(rowMapper.mapRow(resultSet(i + 1, log.get(i)), i));
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                return rows;
+            }
+        };
+        return new ChangeFeedService(jdbcTemplate, bookRepository, authorRepository,
+                new KeysetPager(new PaginationProperties(50, 500)));
+    }
+
+    private static ResultSet resultSet(long seq, String[] row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("xid")).thenReturn(1L);
+        when(rs.getLong("seq")).thenReturn(seq);
+        when(rs.getString("entity_type")).thenReturn(row[0]);
+        when(rs.getLong("entity_id")).thenReturn(Long.parseLong(row[1]));
+        when(rs.getString("change_type")).thenReturn(row[2]);
+        return rs;
+    }
+}
@@ -0,0 +1,125 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.model.Author;
+import com.sisimpur.library.model.Book;
+import com.sisimpur.library.model.User;
+import com.sisimpur.library.repository.AuthorRepository;
+import com.sisimpur.library.repository.BookRepository;
+import com.sisimpur.library.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// many users racing for a handful of copies: every copy may be lent out at most once.
+// Needs the docker-compose database and prints its throughput, so it runs with ./gradlew loadTest
+@Tag("load")
+@SpringBootTest
+class CirculationServiceStressTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+    private static final int COPIES = 40;
+
+    @Autowired
+    private CirculationService circulationService;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Author author;
+    private final List<Long> bookIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        author = authorRepository.save(new Author(null, "Stress Test Author", null, null));
+        for (int i = 0; i < COPIES; i++) {
+            Book book = new Book();
+            book.setTitle("Stress Test Copy " + i);
+            book.setPublishedYear(2000);
+            book.setAuthor(author);
+            bookIds.add(bookRepository.save(book).getId());
+        }
+        String run = UUID.randomUUID().toString();
+        for (int i = 0; i < THREADS; i++) {
+            userIds.add(userRepository.save(new User(null, "Stress " + i, "stress-" + i + "-" + run + "@example.com")).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAllById(bookIds);
+        userRepository.deleteAllById(userIds);
+        authorRepository.delete(author);
+    }
+
+    @Test
+    void concurrentBorrowsNeverLendACopyTwice() throws Exception {
+        Map<Long, Long> lentTo = new ConcurrentHashMap<>();
+        List<Long> doubleLent = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (Long userId : userIds) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    // one to three copies per request, overlapping with other users' requests
+                    Set<Long> wanted = new HashSet<>();
+                    int count = 1 + random.nextInt(3);
+                    while (wanted.size() < count) {
+                        wanted.add(bookIds.get(random.nextInt(COPIES)));
+                    }
+
+                    Map<String, Object> response = circulationService.borrowBooks(userId, new ArrayList<>(wanted));
+                    if ((boolean) response.get("success")) {
+                        successes.incrementAndGet();
+                        for (Long bookId : wanted) {
+                            if (lentTo.putIfAbsent(bookId, userId) != null) {
+                                doubleLent.add(bookId);
+                            }
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        int attempts = THREADS * ATTEMPTS_PER_THREAD;
+        System.out.printf("borrow stress: %d requests from %d threads in %.2f s (%.0f requests/s), %d succeeded%n",
+                attempts, THREADS, seconds, attempts / seconds, successes.get());
+
+        assertTrue(doubleLent.isEmpty(), "copies lent twice: " + doubleLent);
+        assertTrue(successes.get() > 0);
+
+        // the database agrees with what the callers were told
+        for (Book book : bookRepository.findAllById(bookIds)) {
+            Long expected = lentTo.get(book.getId());
+            Long actual = book.getUser() == null ? null : book.getUser().getId();
+            assertEquals(expected, actual, "holder of book " + book.getId());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.sisimpur.library.service;
+
+import com.sisimpur.library.config.SearchProperties;
+import com.sisimpur.library.index.GenreDictionary;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the postgres backend's similarity threshold against the jvm backend, on the same titles and queries: the
+// configured threshold has to agree with the jvm results about as well as any other. Needs the docker-compose
+// database, so it runs with ./gradlew loadTest
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest
+class SearchBackendCalibrationTest {
+
+    private static final String AUTHOR_PREFIX = "calibration-test-";
+    private static final double[] THRESHOLDS = {0.05, 0.08, 0.1, 0.12, 0.15, 0.2, 0.3, 0.4};
+    // how far below the best F1 of the sweep the configured threshold may fall
+    private static final double SLACK = 0.02;
+
+    private static final List<String> TITLES = List.of(
+            "Pride and Prejudice", "War and Peace", "The Great Gatsby", "To Kill a Mockingbird", "Moby Dick",
+            "The Old Man and the Sea", "Crime and Punishment", "One Hundred Years of Solitude",
+            "The Catcher in the Rye", "Brave New World", "Nineteen Eighty-Four", "Anna Karenina",
+            "The Brothers Karamazov", "Great Expectations", "Jane Eyre", "Wuthering Heights", "Little Women",
+            "The Hobbit", "Dracula", "Frankenstein", "Padma Nadir Majhi", "Pather Panchali", "Gitanjali",
+            "The Count of Monte Cristo", "Les Miserables", "Don Quixote", "Madame Bovary",
+            "The Sound and the Fury", "Heart of Darkness", "Lord of the Flies");
+
+    @Autowired
+    private JvmSearchBackend jvmBackend;
+    @Autowired
+    private SearchProperties searchProperties;
+    @Autowired
+    private GenreDictionary genreDictionary;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private BulkImportService bulkImportService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Set<Long> fixtureIds;
+
+    @BeforeAll
+    void seedTitles() {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < TITLES.size(); i++) {
+            rows.append("{\"author_name\":\"").append(AUTHOR_PREFIX).append(i % 5)
+                    .append("\",\"title\":\"").append(TITLES.get(i))
+                    .append("\",\"published_year\":2000}\n");
+        }
+        bulkImportService.importBooks(new ByteArrayInputStream(rows.toString().getBytes(StandardCharsets.UTF_8)),
+                BulkImportService.Format.NDJSON);
+        fixtureIds = new HashSet<>(jdbcTemplate.queryForList(
+                "select b.id from books b join authors a on a.id = b.author_id where a.name like ?",
+                Long.class, AUTHOR_PREFIX + "%"));
+    }
+
+    @AfterAll
+    void removeTitles() {
+        jdbcTemplate.update("delete from authors where name like ?", AUTHOR_PREFIX + "%");
+    }
+
+    @Test
+    void configuredThresholdAgreesWithTheJvmBackend() {
+        List<String> queries = queries();
+        Map<String, Set<Long>> expected = new HashMap<>();
+        for (String query : queries) {
+            expected.put(query, fixtureOnly(jvmBackend.matchTitles(query).matches()));
+        }
+
+        double configured = searchProperties.similarityThreshold();
+        double best = 0;
+        double configuredF1 = f1(expected, postgres(configured));
+        for (double threshold : THRESHOLDS) {
+            double f1 = f1(expected, postgres(threshold));
+            System.out.printf("similarity-threshold %.2f: F1 %.3f against jvm%n", threshold, f1);
+            best = Math.max(best, f1);
+        }
+        System.out.printf("configured %.2f: F1 %.3f, best of sweep %.3f%n", configured, configuredF1, best);
+        assertTrue(configuredF1 >= best - SLACK,
+                "similarity-threshold " + configured + " is off: F1 " + configuredF1 + ", best " + best);
+    }
+
+    private PostgresSearchBackend postgres(double threshold) {
+        return new PostgresSearchBackend(namedJdbcTemplate, transactionManager,
+                new SearchProperties(SearchProperties.Backend.POSTGRES, threshold), genreDictionary);
+    }
+
+    private double f1(Map<String, Set<Long>> expected, PostgresSearchBackend backend) {
+        long agreed = 0;
+        long extra = 0;
+        long missed = 0;
+        for (Map.Entry<String, Set<Long>> entry : expected.entrySet()) {
+            Set<Long> actual = fixtureOnly(backend.matchTitles(entry.getKey()).matches());
+            for (Long id : actual) {
+                if (entry.getValue().contains(id)) {
+                    agreed++;
+                } else {
+                    extra++;
+                }
+            }
+            missed += entry.getValue().stream().filter(id -> !actual.contains(id)).count();
+        }
+        return agreed == 0 ? 0 : 2.0 * agreed / (2.0 * agreed + extra + missed);
+    }
+
+    private Set<Long> fixtureOnly(List<Long> ids) {
+        Set<Long> kept = new HashSet<>(ids);
+        kept.retainAll(fixtureIds);
+        return kept;
+    }
+
+    // what people type: whole titles, one or two typos, a single word, a misspelled word, and a few misses
+    private static List<String> queries() {
+        Random random = new Random(1);
+        List<String> queries = new ArrayList<>();
+        for (String title : TITLES) {
+            String lastWord = title.substring(title.lastIndexOf(' ') + 1);
+            queries.add(title);
+            queries.add(typos(random, title, 1));
+            queries.add(typos(random, title, 2));
+            queries.add(lastWord);
+            queries.add(typos(random, lastWord, 1));
+        }
+        queries.addAll(List.of("harry potter", "war", "the", "love", "zzzz qqq", "1984", "sea"));
+        return queries;
+    }
+
+    private static String typos(Random random, String text, int count) {
+        StringBuilder typed = new StringBuilder(text);
+        for (int i = 0; i < count; i++) {
+            int at = random.nextInt(typed.length());
+            char letter = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(3)) {
+                case 0 -> typed.setCharAt(at, letter);
+                case 1 -> typed.deleteCharAt(at);
+                default -> typed.insert(at, letter);
+            }
+        }
+        return typed.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package com.sisimpur.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the bit-parallel and banded edit distances against a plain dynamic-programming Levenshtein
+class StringMatchingUtilTest {
+
+    private static final int[] LENGTHS = {0, 1, 2, 31, 63, 64, 65, 100, 130};
+    private static final String[] ALPHABETS = {"ab", "abcdefghij klmnop", "a\u00e9\u00df\u00fc\u6f22\u5b57"};
+
+    @Test
+    void editDistanceMatchesDynamicProgramming() {
+        Random random = new Random(42);
+        for (String alphabet : ALPHABETS) {
+            for (int patternLength : LENGTHS) {
+                for (int textLength : LENGTHS) {
+                    for (int round = 0; round < 5; round++) {
+                        String a = randomString(random, alphabet, patternLength);
+                        String b = randomString(random, alphabet, textLength);
+                        int expected = levenshtein(a, b);
+                        assertEquals(expected, StringMatchingUtil.editDistance(a, b, Math.max(a.length(), b.length())),
+                                () -> "distance of \"" + a + "\" and \"" + b + "\"");
+                        assertEquals(expected, StringMatchingUtil.editDistance(b, a, Math.max(a.length(), b.length())),
+                                () -> "distance of \"" + b + "\" and \"" + a + "\"");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void editDistanceHonoursTheBoundAtTheBoundary() {
+        Random random = new Random(7);
+        for (String alphabet : ALPHABETS) {
+            for (int patternLength : LENGTHS) {
+                for (int round = 0; round < 20; round++) {
+                    String a = randomString(random, alphabet, patternLength);
+                    // a nearby string, so the distance is small enough for the bound to matter
+                    String b = mutate(random, alphabet, a, random.nextInt(6));
+                    int expected = levenshtein(a, b);
+
+                    // within the bound the exact distance comes back, one below it only "too far"
+                    assertEquals(expected, StringMatchingUtil.editDistance(a, b, expected));
+                    assertEquals(expected, StringMatchingUtil.editDistance(a, b, expected + 1));
+                    if (expected > 0) {
+                        assertTrue(StringMatchingUtil.editDistance(a, b, expected - 1) > expected - 1,
+                                () -> "bound " + (expected - 1) + " for \"" + a + "\" and \"" + b + "\"");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void nearlyEqualStringsAroundTheWordSize() {
+        for (int length : new int[]{63, 64, 65, 128, 129}) {
+            String a = "x".repeat(length);
+            assertEquals(0, StringMatchingUtil.editDistance(a, a, length));
+            assertEquals(1, StringMatchingUtil.editDistance(a, a.substring(1), length));
+            assertEquals(1, StringMatchingUtil.editDistance(a, a.substring(1) + "y", length));
+            assertEquals(length, StringMatchingUtil.editDistance(a, "", length));
+            assertEquals(length, StringMatchingUtil.editDistance("", a, length));
+        }
+    }
+
+    @Test
+    void scoreIfAboveExitsExactlyAtTheThreshold() {
+        Random random = new Random(11);
+        for (String alphabet : ALPHABETS) {
+            for (int length : LENGTHS) {
+                for (int round = 0; round < 10; round++) {
+                    String query = randomString(random, alphabet, 1 + random.nextInt(Math.max(1, length)));
+                    String target = mutate(random, alphabet, query, random.nextInt(4))
+                            + randomString(random, alphabet, random.nextInt(4));
+                    double expected = combinedScore(query, target);
+
+                    assertEquals(expected, StringMatchingUtil.calculateCombinedScore(query, target), 1e-12);
+                    // strictly above the threshold: equal is a miss, a hair below is a hit with the exact score
+                    assertEquals(StringMatchingUtil.NO_MATCH, StringMatchingUtil.scoreIfAbove(query, target, expected));
+                    assertFalse(StringMatchingUtil.isMatch(query, target, expected));
+                    assertEquals(expected, StringMatchingUtil.scoreIfAbove(query, target, expected - 1e-9), 1e-12);
+                    assertTrue(StringMatchingUtil.isMatch(query, target, expected - 1e-9));
+                }
+            }
+        }
+    }
+
+    @Test
+    void emptyStringsScoreOnTheSubstringAlone() {
+        // "" contains "", and there is no edit distance score without a length
+        assertEquals(0.5, StringMatchingUtil.calculateCombinedScore("", ""));
+        assertEquals(0.5, StringMatchingUtil.scoreIfAbove("", "", 0.0));
+        assertEquals(StringMatchingUtil.NO_MATCH, StringMatchingUtil.scoreIfAbove("", "", 0.5));
+        assertEquals(0, StringMatchingUtil.editDistance("", "", 0));
+    }
+
+    private static double combinedScore(String query, String target) {
+        double substring = StringMatchingUtil.cleanString(target).contains(StringMatchingUtil.cleanString(query)) ? 1.0 : 0.0;
+        int maxLength = Math.max(query.length(), target.length());
+        double edit = maxLength == 0 ? 0.0 : 1.0 - (double) levenshtein(query, target) / maxLength;
+        return 0.5 * substring + 0.5 * edit;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(substitution, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    // a few random insertions, deletions and substitutions
+    private static String mutate(Random random, String alphabet, String input, int edits) {
+        StringBuilder builder = new StringBuilder(input);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(builder.length() + 1);
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> builder.insert(position, c);
+                case 1 -> {
+                    if (position < builder.length()) {
+                        builder.deleteCharAt(position);
+                    }
+                }
+                default -> {
+                    if (position < builder.length()) {
+                        builder.setCharAt(position, c);
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+}